@@ -0,0 +1,84 @@
+package com.example.scanservice.controller;
+
+import com.example.scanservice.model.Scan;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Jackson work of the request and response bodies: a single scan, a page of scans and the
+ * {@link ScanDto} the write endpoints read, plus turning that DTO into a normalized {@link Scan}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanJsonBenchmark {
+
+    @Param({"100"})
+    private int listSize;
+
+    private ObjectWriter scanWriter;
+    private ObjectWriter scanListWriter;
+    private ObjectReader scanDtoReader;
+    private ObjectReader scanDtoListReader;
+
+    private Scan scan;
+    private List<Scan> scans;
+    private byte[] scanDtoJson;
+    private byte[] scanDtoListJson;
+    private ScanDto scanDto;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same defaults Spring Boot applies to the ObjectMapper the controllers use.
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        scanWriter = objectMapper.writerFor(Scan.class);
+        scanListWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Scan.class));
+        scanDtoReader = objectMapper.readerFor(ScanDto.class);
+        scanDtoListReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ScanDto.class));
+
+        scan = new Scan("Lode", "Traktor", 5);
+        scans = IntStream.range(0, listSize)
+                .mapToObj(i -> new Scan("User" + i, "Brand" + (i % 10), i % 6))
+                .toList();
+        scanDtoJson = scanWriter.writeValueAsBytes(new Scan("Michael", "Audi", 4));
+        scanDtoListJson = scanListWriter.writeValueAsBytes(scans);
+        scanDto = scanDtoReader.readValue(scanDtoJson);
+    }
+
+    @Benchmark
+    public byte[] serializeScan() throws IOException {
+        return scanWriter.writeValueAsBytes(scan);
+    }
+
+    @Benchmark
+    public byte[] serializeScanList() throws IOException {
+        return scanListWriter.writeValueAsBytes(scans);
+    }
+
+    @Benchmark
+    public ScanDto deserializeScanDto() throws IOException {
+        return scanDtoReader.readValue(scanDtoJson);
+    }
+
+    @Benchmark
+    public List<ScanDto> deserializeScanDtoList() throws IOException {
+        return scanDtoListReader.readValue(scanDtoListJson);
+    }
+
+    // What the POST and PUT handlers do with the body: lowercase in the controller, then again in the constructor.
+    @Benchmark
+    public Scan scanFromDto() {
+        return new Scan(scanDto.getUserName().toLowerCase(), scanDto.getCarBrand().toLowerCase(), scanDto.getScoreNumber());
+    }
+}
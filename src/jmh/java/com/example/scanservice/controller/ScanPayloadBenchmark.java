@@ -0,0 +1,99 @@
+package com.example.scanservice.controller;
+
+import com.example.scanservice.model.Scan;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialization CPU of a list of scans in every format the list endpoints negotiate, without and with the gzip
+ * response compression on top. {@code payloadSize} writes each format once and reports its size in bytes, plain and
+ * gzipped, as the {@code bytes} and {@code gzippedBytes} secondary results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanPayloadBenchmark {
+
+    public enum Format { JSON, COLUMNAR, CBOR, SMILE }
+
+    @Param({"10000"})
+    private int listSize;
+
+    @Param({"JSON", "COLUMNAR", "CBOR", "SMILE"})
+    private Format format;
+
+    // Counted in a single invocation, JMH sums event counters over iterations
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PayloadSize {
+        public long bytes;
+        public long gzippedBytes;
+    }
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<Scan> scans;
+
+    @Setup
+    public void setUp() throws IOException {
+        // Same builders Spring MVC uses for its JSON, CBOR and Smile converters.
+        objectMapper = switch (format) {
+            case JSON, COLUMNAR -> Jackson2ObjectMapperBuilder.json().build();
+            case CBOR -> Jackson2ObjectMapperBuilder.cbor().build();
+            case SMILE -> Jackson2ObjectMapperBuilder.smile().build();
+        };
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Scan.class));
+        scans = IntStream.range(0, listSize)
+                .mapToObj(i -> new Scan("User" + i, "Brand" + (i % 50), i % 6))
+                .toList();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public void payloadSize(PayloadSize size) throws IOException {
+        size.bytes = serialize().length;
+        size.gzippedBytes = serializeGzip().length;
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeGzip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            write(gzip);
+        }
+        return out.toByteArray();
+    }
+
+    private void write(OutputStream out) throws IOException {
+        if (format == Format.COLUMNAR) {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                ScanColumnarHttpMessageConverter.writeColumns(scans, generator);
+            }
+        } else {
+            listWriter.writeValue(out, scans);
+        }
+    }
+}
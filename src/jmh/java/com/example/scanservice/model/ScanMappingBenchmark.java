@@ -0,0 +1,55 @@
+package com.example.scanservice.model;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring Data's mapping between {@link Scan} and the BSON document it is stored as, without a database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanMappingBenchmark {
+
+    private MappingMongoConverter converter;
+    private Scan scan;
+    private Document document;
+
+    @Setup
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Set.of(Scan.class));
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+
+        scan = new Scan("Lode", "Traktor", 5);
+        document = new Document("_id", new ObjectId())
+                .append("userName", "lode")
+                .append("carBrand", "traktor")
+                .append("scoreNumber", 5)
+                .append("_class", Scan.class.getName());
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(scan, target);
+        return target;
+    }
+
+    @Benchmark
+    public Scan read() {
+        return converter.read(Scan.class, document);
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.scanservice.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the {@code toLowerCase()} normalization in the {@link Scan} constructor and setters, for input that
+ * still has to be lowercased and for input that already is (what the controllers pass in).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanNormalizationBenchmark {
+
+    private String userName = "Lode";
+    private String carBrand = "Lamborghini";
+    private String lowerUserName = "lode";
+    private String lowerCarBrand = "lamborghini";
+
+    @Benchmark
+    public Scan constructorMixedCase() {
+        return new Scan(userName, carBrand, 5);
+    }
+
+    @Benchmark
+    public Scan constructorLowerCase() {
+        return new Scan(lowerUserName, lowerCarBrand, 5);
+    }
+
+    @Benchmark
+    public Scan setters() {
+        Scan scan = new Scan();
+        scan.setUserName(userName);
+        scan.setCarBrand(carBrand);
+        scan.setScoreNumber(5);
+        return scan;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.scanservice.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code --name=value} options of {@link ScanLoadGenerator}. Arguments it does not know are handed to the
+ * started application, e.g. {@code --spring.profiles.active=reactive}.
+ */
+class LoadOptions {
+
+    // Base url of a service that is already running; when absent the generator starts one on a random port.
+    String target;
+    int concurrency = 64;
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    // Total requests per second over all workers, 0 runs a closed loop (every worker sends as fast as it can).
+    double rate = 0;
+    // Share of requests that are writes (PUT upserts), the rest is spread over the read endpoints.
+    double writeRatio = 0.1;
+    int users = 10_000;
+    int brands = 50;
+    double userSkew = 1.0;
+    double brandSkew = 1.0;
+    // Scans inserted through POST /scans/batch before the warmup starts.
+    int seed = 20_000;
+    String output = "target/loadtest";
+    final List<String> applicationArgs = new ArrayList<>();
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            String name = arg.startsWith("--") && equals > 2 ? arg.substring(2, equals) : "";
+            String value = equals > 0 ? arg.substring(equals + 1) : "";
+            switch (name) {
+                case "target" -> options.target = value;
+                case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "duration" -> options.duration = DurationStyle.detectAndParse(value);
+                case "warmup" -> options.warmup = DurationStyle.detectAndParse(value);
+                case "rate" -> options.rate = Double.parseDouble(value);
+                case "write-ratio" -> options.writeRatio = Double.parseDouble(value);
+                case "users" -> options.users = Integer.parseInt(value);
+                case "brands" -> options.brands = Integer.parseInt(value);
+                case "user-skew" -> options.userSkew = Double.parseDouble(value);
+                case "brand-skew" -> options.brandSkew = Double.parseDouble(value);
+                case "seed" -> options.seed = Integer.parseInt(value);
+                case "output" -> options.output = value;
+                default -> options.applicationArgs.add(arg);
+            }
+        }
+        if (options.writeRatio < 0 || options.writeRatio > 1) {
+            throw new IllegalArgumentException("write-ratio must be between 0 and 1: " + options.writeRatio);
+        }
+        return options;
+    }
+
+    @Override
+    public String toString() {
+        return "concurrency=" + concurrency + ", duration=" + duration + ", warmup=" + warmup
+                + ", rate=" + (rate > 0 ? rate + "/s" : "closed loop") + ", write-ratio=" + writeRatio
+                + ", users=" + users + " (skew " + userSkew + "), brands=" + brands + " (skew " + brandSkew + ")"
+                + ", seed=" + seed;
+    }
+}
@@ -0,0 +1,274 @@
+package com.example.scanservice.loadtest;
+
+import com.example.scanservice.ScanServiceApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a mix of the scan endpoints with skewed user and brand keys and reports throughput and latency percentiles
+ * per endpoint, as a table and as HdrHistogram percentile distributions ({@code .hgrm}) in {@code --output}.
+ * <p>
+ * Without {@code --target} it starts {@link ScanServiceApplication} on a random port against the MongoDB the
+ * application is configured for, in the {@code loadtest} database unless another one is given.
+ * With {@code --rate} latency is measured from the time a request was due, so a stalled service is not hidden by
+ * workers that wait for it (coordinated omission).
+ * <p>
+ * {@code mvn -Ploadtest verify -Dloadtest.args="--concurrency=128 --duration=2m --write-ratio=0.2"}
+ */
+public class ScanLoadGenerator {
+
+    enum Operation {
+        GET_USER(35), GET_BRAND(25), GET_PAIR(30), GET_TOP(5), GET_STATS(5), PUT_UPSERT(0);
+
+        // Share of the reads that go to this endpoint.
+        private final int readWeight;
+
+        Operation(int readWeight) {
+            this.readWeight = readWeight;
+        }
+    }
+
+    private static final int SEED_CHUNK = 5_000;
+
+    private final LoadOptions options;
+    private final URI target;
+    private final HttpClient httpClient;
+    private final ZipfSampler users;
+    private final ZipfSampler brands;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+    private final Operation[] reads;
+    private final int readWeightSum;
+
+    private volatile boolean running = true;
+    private volatile boolean recording = false;
+
+    ScanLoadGenerator(LoadOptions options, URI target) {
+        this.options = options;
+        this.target = target;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        this.users = new ZipfSampler(options.users, options.userSkew);
+        this.brands = new ZipfSampler(options.brands, options.brandSkew);
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(3));
+            errors.put(operation, new LongAdder());
+        }
+        this.reads = Arrays.stream(Operation.values()).filter(operation -> operation.readWeight > 0).toArray(Operation[]::new);
+        this.readWeightSum = Arrays.stream(reads).mapToInt(operation -> operation.readWeight).sum();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        ConfigurableApplicationContext context = null;
+        String target = options.target;
+        if (target == null) {
+            List<String> applicationArgs = new ArrayList<>(options.applicationArgs);
+            applicationArgs.add("--server.port=0");
+            if (applicationArgs.stream().noneMatch(arg -> arg.startsWith("--spring.data.mongodb.database="))) {
+                applicationArgs.add("--spring.data.mongodb.database=loadtest");
+            }
+            context = SpringApplication.run(ScanServiceApplication.class, applicationArgs.toArray(String[]::new));
+            target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            new ScanLoadGenerator(options, URI.create(target)).run();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    void run() throws Exception {
+        System.out.println("Load test against " + target + ": " + options);
+        seed();
+
+        long measureNanos;
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            long start = System.nanoTime();
+            for (int i = 0; i < options.concurrency; i++) {
+                int worker = i;
+                workers.submit(() -> work(start, worker));
+            }
+            Thread.sleep(options.warmup.toMillis());
+            recording = true;
+            long measureStart = System.nanoTime();
+            Thread.sleep(options.duration.toMillis());
+            recording = false;
+            measureNanos = System.nanoTime() - measureStart;
+            running = false;
+        }
+        report(measureNanos);
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        for (int offset = 0; offset < options.seed; offset += SEED_CHUNK) {
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = offset; i < Math.min(options.seed, offset + SEED_CHUNK); i++) {
+                ndjson.append(scanJson(userName(users.next()), carBrand(brands.next()), score())).append('\n');
+            }
+            HttpResponse<Void> response = httpClient.send(HttpRequest.newBuilder(target.resolve("/scans/batch?ordered=false"))
+                            .header("Content-Type", "application/x-ndjson")
+                            .POST(HttpRequest.BodyPublishers.ofString(ndjson.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with status " + response.statusCode());
+            }
+        }
+    }
+
+    private void work(long start, int worker) {
+        long interval = options.rate > 0 ? (long) (1e9 * options.concurrency / options.rate) : 0;
+        // Spread the workers over one interval instead of having all of them fire at once.
+        long due = start + (interval * worker) / Math.max(1, options.concurrency);
+        while (running) {
+            long sent;
+            if (interval > 0) {
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                sent = due;
+                due += interval;
+            } else {
+                sent = System.nanoTime();
+            }
+
+            Operation operation = nextOperation();
+            boolean recordThis = recording;
+            try {
+                int status = httpClient.send(request(operation), HttpResponse.BodyHandlers.discarding()).statusCode();
+                long latency = System.nanoTime() - sent;
+                if (recordThis && recording) {
+                    if (status >= 200 && status < 300) {
+                        histograms.get(operation).recordValue(latency);
+                    } else {
+                        errors.get(operation).increment();
+                    }
+                }
+            } catch (IOException e) {
+                if (recordThis && recording) {
+                    errors.get(operation).increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Operation nextOperation() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < options.writeRatio) {
+            return Operation.PUT_UPSERT;
+        }
+        int pick = random.nextInt(readWeightSum);
+        for (Operation read : reads) {
+            pick -= read.readWeight;
+            if (pick < 0) {
+                return read;
+            }
+        }
+        return reads[reads.length - 1];
+    }
+
+    private HttpRequest request(Operation operation) {
+        String userName = userName(users.next());
+        String carBrand = carBrand(brands.next());
+        return switch (operation) {
+            case GET_USER -> get("/scans/user/" + userName);
+            case GET_BRAND -> get("/scans/" + carBrand);
+            case GET_PAIR -> get("/scans/user/" + userName + "/car/" + carBrand);
+            case GET_TOP -> get("/scans/" + carBrand + "/top?n=10");
+            case GET_STATS -> get("/scans/stats");
+            case PUT_UPSERT -> HttpRequest.newBuilder(target.resolve("/scans?upsert=true"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(scanJson(userName, carBrand, score())))
+                    .build();
+        };
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(target.resolve(path)).header("Accept", "application/json").GET().build();
+    }
+
+    private void report(long measureNanos) throws IOException {
+        Path output = Path.of(options.output);
+        Files.createDirectories(output);
+        double seconds = measureNanos / 1e9;
+        Histogram all = new Histogram(3);
+
+        System.out.printf("%n%-11s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            all.add(histogram);
+            printRow(operation.name(), histogram, errors.get(operation).sum(), seconds);
+            writeDistribution(histogram, output.resolve(operation.name().toLowerCase() + ".hgrm"));
+        }
+        long allErrors = errors.values().stream().mapToLong(LongAdder::sum).sum();
+        printRow("ALL", all, allErrors, seconds);
+        writeDistribution(all, output.resolve("all.hgrm"));
+        System.out.println("\nPercentile distributions (ms) written to " + output.toAbsolutePath());
+    }
+
+    private static void printRow(String name, Histogram histogram, long errors, double seconds) {
+        System.out.printf("%-11s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, histogram.getTotalCount(), errors, histogram.getTotalCount() / seconds,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(95)),
+                millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static String userName(int rank) {
+        return "user" + rank;
+    }
+
+    private static String carBrand(int rank) {
+        return "brand" + rank;
+    }
+
+    private static int score() {
+        return ThreadLocalRandom.current().nextInt(1, 11);
+    }
+
+    private static String scanJson(String userName, String carBrand, int scoreNumber) {
+        return "{\"userName\":\"" + userName + "\",\"carBrand\":\"" + carBrand + "\",\"scoreNumber\":" + scoreNumber + "}";
+    }
+}
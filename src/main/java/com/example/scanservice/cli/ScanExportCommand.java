@@ -0,0 +1,67 @@
+package com.example.scanservice.cli;
+
+import com.example.scanservice.service.ScanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * One-off export that exits the application when done:
+ * <pre>
+ * java -jar scan-service.jar --spring.main.web-application-type=none --scans.export.file=scans.ndjson.zst
+ * </pre>
+ * The compression (gzip, zstd or none) follows the file extension unless {@code scans.export.compression} is set,
+ * {@code scans.export.user-name} and {@code scans.export.car-brand} limit the export to one user or brand.
+ */
+@Component
+@ConditionalOnProperty("scans.export.file")
+public class ScanExportCommand implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanExportCommand.class);
+
+    @Autowired
+    private ScanExporter scanExporter;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${scans.export.file}")
+    private Path file;
+
+    @Value("${scans.export.compression:}")
+    private String compression;
+
+    @Value("${scans.export.user-name:#{null}}")
+    private String userName;
+
+    @Value("${scans.export.car-brand:#{null}}")
+    private String carBrand;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            long started = System.nanoTime();
+            long count = scanExporter.export(
+                    userName == null ? null : userName.toLowerCase(),
+                    carBrand == null ? null : carBrand.toLowerCase(),
+                    compression.isEmpty() ? ScanExporter.Compression.of(file) : ScanExporter.Compression.valueOf(compression.toUpperCase()),
+                    file);
+            log.info("Exported {} scans to {} in {}ms", count, file, (System.nanoTime() - started) / 1_000_000);
+        } catch (Exception e) {
+            log.error("Export to {} failed", file, e);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.scanservice.cli;
+
+import com.example.scanservice.service.ScanImporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * One-off import that exits the application when done:
+ * <pre>
+ * java -jar scan-service.jar --spring.main.web-application-type=none --scans.import.file=scans.ndjson
+ * </pre>
+ * {@code scans.import.format} (ndjson | csv) defaults to the file extension, {@code scans.import.checkpoint}
+ * to the file name with {@code .checkpoint} appended. Run the same command again to resume after a failure.
+ */
+@Component
+@ConditionalOnProperty("scans.import.file")
+public class ScanImportCommand implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanImportCommand.class);
+
+    @Autowired
+    private ScanImporter scanImporter;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Value("${scans.import.file}")
+    private Path file;
+
+    @Value("${scans.import.format:}")
+    private String format;
+
+    @Value("${scans.import.checkpoint:}")
+    private String checkpoint;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = 0;
+        try {
+            ScanImporter.Result result = scanImporter.importFile(file,
+                    format.isEmpty() ? ScanImporter.Format.of(file) : ScanImporter.Format.valueOf(format.toUpperCase()),
+                    checkpoint.isEmpty() ? file.resolveSibling(file.getFileName() + ".checkpoint") : Path.of(checkpoint));
+            log.info("Import of {} finished: {} rows, {} written, {} invalid in {}s",
+                    file, result.rows(), result.written(), result.invalid(), result.elapsed().toSeconds());
+        } catch (Exception e) {
+            log.error("Import of {} failed", file, e);
+            exitCode = 1;
+        }
+        int status = exitCode;
+        System.exit(SpringApplication.exit(context, () -> status));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.scanservice.config;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A limit on concurrent requests that follows their latency: additive increase, multiplicative decrease (AIMD).
+ * <p>
+ * A request slower than the target latency shrinks the limit by {@code backoffRatio}, at most once per target latency
+ * so a batch of requests that were slow together counts as one signal. Every faster request grows it by
+ * {@code 1 / limit}, about one per round of requests, but only while at least half of the limit is in use: an idle
+ * limit says nothing about what the backend can take. A failed request only counts when it took longer than the
+ * target latency, as a slow one: a fast error says nothing about the latency, a request that failed after waiting on
+ * the backend is the overload this limit sheds.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final double backoffRatio;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private long lastDecrease;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, Duration targetLatency, double backoffRatio) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min-limit <= initial-limit <= max-limit, got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.limit = initialLimit;
+        this.lastDecrease = System.nanoTime() - targetLatencyNanos;
+    }
+
+    /**
+     * @return true when the request may run, it then has to {@link #release} once done
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release(long latencyNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        onSample(latencyNanos, concurrent, System.nanoTime());
+    }
+
+    public void releaseFailed(long latencyNanos) {
+        int concurrent = inFlight.getAndDecrement();
+        if (latencyNanos > targetLatencyNanos) {
+            onSample(latencyNanos, concurrent, System.nanoTime());
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long latencyNanos, int concurrent, long now) {
+        if (latencyNanos > targetLatencyNanos) {
+            if (now - lastDecrease >= targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                lastDecrease = now;
+            }
+        } else if (concurrent * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+}
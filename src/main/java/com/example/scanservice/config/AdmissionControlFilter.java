@@ -0,0 +1,221 @@
+package com.example.scanservice.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Admission control in front of {@code ScanController}: every endpoint class has its own
+ * {@link AdaptiveConcurrencyLimit}, and a request beyond the limit of its class is answered 503 with Retry-After right
+ * away instead of waiting for a thread. A slow MongoDB then shrinks the limits of the classes it slows down, and
+ * requests of the other classes keep their threads: cheap lookups stay fast while lists time out.
+ * <p>
+ * Limits are configured per class under {@code scans.admission.<read-all|lookup|write>.*}. The change stream is left
+ * out, its requests last as long as the client listens.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "scans.admission.enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AdmissionControlFilter extends OncePerRequestFilter {
+
+    public enum EndpointClass {
+        // Lists of scans: all of them, of a user or of a brand, and exports
+        READ_ALL("read-all"),
+        // One scan, the top scans of a brand and statistics
+        LOOKUP("lookup"),
+        WRITE("write");
+
+        private final String key;
+
+        EndpointClass(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private static final PathPattern SCANS = PathPatternParser.defaultInstance.parse("/scans/**");
+    private static final PathPattern CHANGE_STREAM = PathPatternParser.defaultInstance.parse("/scans/stream");
+    private static final List<PathPattern> LOOKUPS = Stream.of(
+                    "/scans/user/{userName}/car/{carBrand}",
+                    "/scans/user/{userName}/stats",
+                    "/scans/stats",
+                    "/scans/{carBrand}/top")
+            .map(PathPatternParser.defaultInstance::parse)
+            .toList();
+    private static final Set<String> WRITE_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    @Autowired
+    private Environment environment;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scans.admission.min-limit:2}")
+    private int minLimit;
+
+    @Value("${scans.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${scans.admission.retry-after:PT1S}")
+    private Duration retryAfter;
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    public void init() {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String prefix = "scans.admission." + endpointClass.key + ".";
+            AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+                    environment.getRequiredProperty(prefix + "initial-limit", Integer.class),
+                    minLimit,
+                    environment.getRequiredProperty(prefix + "max-limit", Integer.class),
+                    environment.getRequiredProperty(prefix + "target-latency", Duration.class),
+                    backoffRatio);
+            limits.put(endpointClass, limit);
+
+            Gauge.builder("scans.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Concurrent requests admitted per endpoint class")
+                    .tag("class", endpointClass.key)
+                    .register(meterRegistry);
+            Gauge.builder("scans.admission.in-flight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Admitted requests running per endpoint class")
+                    .tag("class", endpointClass.key)
+                    .register(meterRegistry);
+            rejected.put(endpointClass, Counter.builder("scans.admission.rejected")
+                    .description("Requests answered 503 because their endpoint class was at its limit")
+                    .tag("class", endpointClass.key)
+                    .register(meterRegistry));
+        }
+    }
+
+    public AdaptiveConcurrencyLimit getLimit(EndpointClass endpointClass) {
+        return limits.get(endpointClass);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        EndpointClass endpointClass = classify(request);
+        if (endpointClass == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            rejected.get(endpointClass).increment();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, retryAfter.toSeconds())));
+            return;
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (request.isAsyncStarted()) {
+                // Streamed bodies are written after this returns, the request holds its slot until they are done
+                request.getAsyncContext().addListener(new ReleasingListener(limit, start));
+            } else {
+                release(limit, start, !failed && succeeded(response));
+            }
+        }
+    }
+
+    // A fast 5xx is no latency sample, a slow one still shrinks the limit
+    private static void release(AdaptiveConcurrencyLimit limit, long start, boolean succeeded) {
+        if (succeeded) {
+            limit.release(System.nanoTime() - start);
+        } else {
+            limit.releaseFailed(System.nanoTime() - start);
+        }
+    }
+
+    private static boolean succeeded(HttpServletResponse response) {
+        return response.getStatus() < 500;
+    }
+
+    private static EndpointClass classify(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+        if (!SCANS.matches(path) || CHANGE_STREAM.matches(path)) {
+            return null;
+        }
+        if (WRITE_METHODS.contains(request.getMethod())) {
+            return EndpointClass.WRITE;
+        }
+        return LOOKUPS.stream().anyMatch(pattern -> pattern.matches(path)) ? EndpointClass.LOOKUP : EndpointClass.READ_ALL;
+    }
+
+    // A request that times out or fails is completed afterwards, only the first of these events releases its slot
+    private static class ReleasingListener implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimit limit;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleasingListener(AdaptiveConcurrencyLimit limit, long start) {
+            this.limit = limit;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(limit, start, !(event.getSuppliedResponse() instanceof HttpServletResponse response) || succeeded(response));
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(limit, start, false);
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            if (released.compareAndSet(false, true)) {
+                release(limit, start, false);
+            }
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.scanservice.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Makes {@code server.compression.min-response-size} apply to bodies written by message converters.
+ * <p>
+ * Spring flushes the response after every converted body, which commits it without a Content-Length, and Tomcat
+ * compresses any response of unknown length. For the compressible content types this filter leaves flushing to the
+ * end of the request instead: a body that fits Tomcat's buffer then gets its length and is only compressed above the
+ * threshold, a larger body is committed once the buffer is full and compressed as before. Other content types, like
+ * NDJSON streams, keep flushing when they ask to.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "server.compression.enabled", havingValue = "true")
+// The import and export commands run without a web server, and so without ServerProperties
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final List<MimeType> compressible;
+
+    @Autowired
+    public CompressionThresholdFilter(ServerProperties serverProperties) {
+        compressible = Arrays.stream(serverProperties.getCompression().getMimeTypes()).map(MimeType::valueOf).toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, new DeferredFlushResponse(response));
+    }
+
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MimeType mimeType = MimeType.valueOf(contentType);
+        return compressible.stream().anyMatch(type -> type.equalsTypeAndSubtype(mimeType));
+    }
+
+    private class DeferredFlushResponse extends HttpServletResponseWrapper {
+
+        private ServletOutputStream outputStream;
+
+        DeferredFlushResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new DeferredFlushOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (!isCompressible(getContentType())) {
+                super.flushBuffer();
+            }
+        }
+    }
+
+    private class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final HttpServletResponse response;
+
+        DeferredFlushOutputStream(ServletOutputStream delegate, HttpServletResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!isCompressible(response.getContentType())) {
+                delegate.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
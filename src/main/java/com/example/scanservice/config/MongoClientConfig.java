@@ -0,0 +1,19 @@
+package com.example.scanservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MongoClientConfig {
+
+    /**
+     * Once requests run on virtual threads the connection pool, not the Tomcat thread pool, bounds how many
+     * MongoDB calls are in flight; callers beyond it wait for a free connection.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer connectionPoolCustomizer(@Value("${scans.mongodb.max-pool-size:100}") int maxPoolSize) {
+        return settings -> settings.applyToConnectionPoolSettings(pool -> pool.maxSize(maxPoolSize));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.scanservice.config;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScoreCount;
+import com.example.scanservice.model.UserStats;
+import com.example.scanservice.repository.ScanDictionary;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+
+import static com.example.scanservice.repository.ScanDictionary.Field.CAR_BRAND;
+import static com.example.scanservice.repository.ScanDictionary.Field.USER_NAME;
+
+@Configuration
+@ConditionalOnProperty(name = "scans.storage.dictionary.enabled", havingValue = "true")
+public class ScanDictionaryConfig {
+
+    /**
+     * Replaces Spring Boot's default conversions with the same ones plus the dictionary codes for the scan fields and
+     * the group keys of the statistics and score count pipelines.
+     */
+    @Bean
+    public MongoCustomConversions mongoCustomConversions(ScanDictionary scanDictionary) {
+        return MongoCustomConversions.create(conversions -> conversions.configurePropertyConversions(registrar -> registrar
+                .registerConverter(Scan.class, "userName", scanDictionary.converter(USER_NAME))
+                .registerConverter(Scan.class, "carBrand", scanDictionary.converter(CAR_BRAND))
+                .registerConverter(UserStats.class, "userName", scanDictionary.converter(USER_NAME))
+                .registerConverter(BrandStats.class, "carBrand", scanDictionary.converter(CAR_BRAND))
+                .registerConverter(ScoreCount.class, "userName", scanDictionary.converter(USER_NAME))
+                .registerConverter(ScoreCount.class, "carBrand", scanDictionary.converter(CAR_BRAND))));
+    }
+}
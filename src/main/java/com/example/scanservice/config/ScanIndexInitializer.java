@@ -0,0 +1,74 @@
+package com.example.scanservice.config;
+
+import com.example.scanservice.model.Scan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Makes sure the indexes declared on {@link Scan} exist before the service takes traffic.
+ * <p>
+ * {@code scans.indexes.mode=create} (default) creates missing indexes, {@code verify} refuses to start
+ * when one is missing and {@code off} skips the check entirely.
+ */
+@Component
+public class ScanIndexInitializer {
+
+    public enum Mode { CREATE, VERIFY, OFF }
+
+    private static final Logger log = LoggerFactory.getLogger(ScanIndexInitializer.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MongoMappingContext mappingContext;
+
+    @Value("${scans.indexes.mode:create}")
+    private Mode mode;
+
+    @PostConstruct
+    public void ensureIndexes() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+
+        IndexOperations indexOps = mongoTemplate.indexOps(Scan.class);
+        MongoPersistentEntityIndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+        if (mode == Mode.CREATE) {
+            resolver.resolveIndexFor(Scan.class).forEach(indexOps::createIndex);
+        }
+
+        Set<String> existing = indexOps.getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .collect(Collectors.toSet());
+
+        List<String> missing = new ArrayList<>();
+        resolver.resolveIndexFor(Scan.class).forEach(index -> {
+            String name = index.getIndexOptions().getString("name");
+            if (!existing.contains(name)) {
+                missing.add(name);
+            }
+        });
+
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Missing indexes on collection '"
+                    + mongoTemplate.getCollectionName(Scan.class) + "': " + missing);
+        }
+        log.info("Indexes {} present on collection '{}'", existing, mongoTemplate.getCollectionName(Scan.class));
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.scanservice.config;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanLookupService;
+import com.example.scanservice.service.ScanStatsService;
+import com.example.scanservice.service.ScanVersionService;
+import com.mongodb.bulk.BulkWriteError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Inserts a handful of demo scans into an empty collection when {@code scans.seed.enabled=true}.
+ * <p>
+ * Seeding runs on a background thread once the application is ready, so it never delays the first request and a
+ * MongoDB that is slow or down at startup only costs the demo data, not the start.
+ */
+@Component
+@ConditionalOnProperty(name = "scans.seed.enabled", havingValue = "true")
+public class ScanSeeder {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanSeeder.class);
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ObjectProvider<ScanLookupService> scanLookupService;
+
+    @Autowired
+    private ObjectProvider<ScanStatsService> scanStatsService;
+
+    @Autowired
+    private ScanVersionService scanVersionService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedInBackground() {
+        Thread.ofVirtual().name("scan-seeder").start(() -> {
+            try {
+                seed();
+            } catch (RuntimeException e) {
+                log.warn("Seeding demo scans failed", e);
+            }
+        });
+    }
+
+    public void seed() {
+        if (scanRepository.count() > 0) {
+            return;
+        }
+        // Unordered, so a scan inserted concurrently by a client only fails its own demo entry
+        List<Scan> scans = List.of(
+                new Scan("Lode", "Audi", 5),
+                new Scan("Lode", "Traktor", 2),
+                new Scan("Johnny", "Lamborghini", 5),
+                new Scan("Lode", "Volkswagen", 3));
+        List<BulkWriteError> errors = scanRepository.bulkInsert(scans, false);
+
+        scanLookupService.ifAvailable(lookup -> scans.forEach(scan -> lookup.evictScan(scan.getUserName(), scan.getCarBrand())));
+        scanStatsService.ifAvailable(ScanStatsService::rebuild);
+        scanVersionService.changed(scans);
+        log.info("Seeded {} demo scans", scans.size() - errors.size());
+    }
+}
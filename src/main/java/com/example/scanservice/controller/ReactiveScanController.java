@@ -0,0 +1,226 @@
+package com.example.scanservice.controller;
+
+import com.example.scanservice.model.BatchItemResult;
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScanDeleteResult;
+import com.example.scanservice.repository.ReactiveScanRepository;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * WebFlux version of the core of {@link ScanController}, active with the reactive profile. Requests never block a
+ * thread while waiting on MongoDB. It serves the list, lookup, top, brand stats and write endpoints; user stats,
+ * exports, the change stream, entity tags and the other servlet-only features are not offered, see the README.
+ * Names are lower cased like {@link Scan} does, the dictionary is not available in this mode.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveScanController {
+
+    @Autowired
+    private ReactiveScanRepository scanRepository;
+
+    @Value("${scans.page.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Value("${scans.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @GetMapping("/scans/user/{userName}")
+    public Mono<ResponseEntity<List<Scan>>> getScansByUserName(@PathVariable String userName,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String after){
+        String user = userName.toLowerCase();
+        if(limit==null && after==null){
+            return scanRepository.findScansByUserName(user).collectList().map(ResponseEntity::ok);
+        }
+        return page(limit, after,
+                pageable -> scanRepository.findScansByUserName(user, pageable),
+                (id, pageable) -> scanRepository.findScansByUserNameAndIdGreaterThan(user, id, pageable));
+    }
+
+    @GetMapping(value = "/scans/user/{userName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Scan> streamScansByUserName(@PathVariable String userName){
+        return scanRepository.findScansByUserName(userName.toLowerCase());
+    }
+
+    @GetMapping("/scans/{carBrand}")
+    public Mono<ResponseEntity<List<Scan>>> getScansByCarBrand(@PathVariable String carBrand,
+                                                               @RequestParam(required = false) Integer limit,
+                                                               @RequestParam(required = false) String after){
+        String brand = carBrand.toLowerCase();
+        if(limit==null && after==null){
+            return scanRepository.findScansByCarBrand(brand).collectList().map(ResponseEntity::ok);
+        }
+        return page(limit, after,
+                pageable -> scanRepository.findScansByCarBrand(brand, pageable),
+                (id, pageable) -> scanRepository.findScansByCarBrandAndIdGreaterThan(brand, id, pageable));
+    }
+
+    @GetMapping(value = "/scans/{carBrand}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Scan> streamScansByCarBrand(@PathVariable String carBrand){
+        return scanRepository.findScansByCarBrand(carBrand.toLowerCase());
+    }
+
+    @GetMapping("/scans/{carBrand}/top")
+    public Mono<ResponseEntity<List<Scan>>> getTopScansByCarBrand(@PathVariable String carBrand, @RequestParam(defaultValue = "10") int n){
+        if(n<=0){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return scanRepository.findScansByCarBrandOrderByScoreNumberDescIdAsc(carBrand.toLowerCase(), Limit.of(Math.min(n, maxPageLimit)))
+                .collectList()
+                .map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/scans/stats")
+    public Flux<BrandStats> getBrandStats(){
+        return scanRepository.findBrandStats();
+    }
+
+    @GetMapping("/scans/user/{userName}/car/{carBrand}")
+    public Mono<Scan> getScanByUserNameAndCarBrand(@PathVariable String userName, @PathVariable String carBrand){
+        return scanRepository.findScanByUserNameAndCarBrand(userName.toLowerCase(), carBrand.toLowerCase());
+    }
+
+    @GetMapping("/scans")
+    public Mono<ResponseEntity<List<Scan>>> getScans(@RequestParam(required = false) Integer limit,
+                                                     @RequestParam(required = false) String after){
+        if(limit==null && after==null){
+            return scanRepository.findAll(Sort.by("id")).collectList().map(ResponseEntity::ok);
+        }
+        return page(limit, after, scanRepository::findScansBy, scanRepository::findScansByIdGreaterThan);
+    }
+
+    @GetMapping(value = "/scans", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Scan> streamScans(){
+        return scanRepository.findAll(Sort.by("id"));
+    }
+
+    @PostMapping("/scans")
+    public Mono<ResponseEntity<Scan>> addScan(@RequestBody ScanDto scanDto){
+        if(scanDto.getUserName()==null || scanDto.getCarBrand()==null || scanDto.getScoreNumber()==null){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return scanRepository.save(new Scan(scanDto.getUserName().toLowerCase(),scanDto.getCarBrand().toLowerCase(),scanDto.getScoreNumber()))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * @see ScanController#addScans
+     */
+    @PostMapping(value = "/scans/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Mono<List<BatchItemResult>> addScans(@RequestBody Flux<ScanDto> scanDtos, @RequestParam(defaultValue = "true") boolean ordered){
+        return scanDtos.index()
+                .buffer(batchChunkSize)
+                .concatMap(chunk -> writeChunk(chunk, ordered))
+                .takeUntil(chunkResult -> ordered && !chunkResult.complete)
+                .flatMapIterable(chunkResult -> chunkResult.results)
+                .collectList();
+    }
+
+    @PutMapping("/scans")
+    public Mono<ResponseEntity<Scan>> updateScan(@RequestBody ScanDto updatedScan, @RequestParam(defaultValue = "false") boolean upsert){
+        if(updatedScan.getUserName()==null || updatedScan.getCarBrand()==null || updatedScan.getScoreNumber()==null){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return scanRepository.updateScoreNumber(updatedScan.getUserName().toLowerCase(), updatedScan.getCarBrand().toLowerCase(),
+                        updatedScan.getScoreNumber(), upsert)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/scans/user/{userName}/car/{carBrand}")
+    public Mono<ResponseEntity<ScanDeleteResult>> deleteScan(@PathVariable String userName, @PathVariable String carBrand){
+        return scanRepository.deleteScanByUserNameAndCarBrand(userName.toLowerCase(), carBrand.toLowerCase())
+                .map(deleted -> deleted>0
+                        ? ResponseEntity.ok(new ScanDeleteResult(deleted))
+                        : ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/scans/user/{userName}")
+    public Mono<ScanDeleteResult> deleteScansByUserName(@PathVariable String userName){
+        return scanRepository.deleteScansByUserName(userName.toLowerCase()).map(ScanDeleteResult::new);
+    }
+
+    @DeleteMapping("/scans/{carBrand}")
+    public Mono<ScanDeleteResult> deleteScansByCarBrand(@PathVariable String carBrand){
+        return scanRepository.deleteScansByCarBrand(carBrand.toLowerCase()).map(ScanDeleteResult::new);
+    }
+
+    private record ChunkResult(List<BatchItemResult> results, boolean complete) {
+    }
+
+    // Invalid scans are reported without being sent; in ordered mode nothing after the first invalid scan is written.
+    private Mono<ChunkResult> writeChunk(List<Tuple2<Long, ScanDto>> chunk, boolean ordered){
+        List<BatchItemResult> results = new ArrayList<>();
+        List<Scan> scans = new ArrayList<>(chunk.size());
+        List<Integer> indexes = new ArrayList<>(chunk.size());
+        boolean complete = true;
+        for(Tuple2<Long, ScanDto> item : chunk){
+            int index = item.getT1().intValue();
+            ScanDto scanDto = item.getT2();
+            if(scanDto.getUserName()==null || scanDto.getCarBrand()==null || scanDto.getScoreNumber()==null){
+                results.add(new BatchItemResult(index, BatchItemResult.Status.INVALID, "userName, carBrand and scoreNumber are required"));
+                complete = false;
+                if(ordered){
+                    break;
+                }
+            }else{
+                scans.add(new Scan(scanDto.getUserName().toLowerCase(), scanDto.getCarBrand().toLowerCase(), scanDto.getScoreNumber()));
+                indexes.add(index);
+            }
+        }
+        boolean valid = complete;
+        return scanRepository.bulkInsert(scans, ordered)
+                .map(errors -> {
+                    List<BatchItemResult> chunkResults = new ArrayList<>(BatchItemResult.ofBulkWrite(indexes, errors, ordered));
+                    chunkResults.addAll(results);
+                    chunkResults.sort((a, b) -> Integer.compare(a.getIndex(), b.getIndex()));
+                    return new ChunkResult(chunkResults, valid && errors.isEmpty());
+                });
+    }
+
+    private Mono<ResponseEntity<List<Scan>>> page(Integer limit, String after,
+                                                  Function<Pageable, Flux<Scan>> firstPage,
+                                                  BiFunction<ObjectId, Pageable, Flux<Scan>> nextPage){
+        if((limit!=null && limit<=0) || (after!=null && !ObjectId.isValid(after))){
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        int size = limit==null ? maxPageLimit : Math.min(limit, maxPageLimit);
+        Pageable pageable = PageRequest.of(0, size, Sort.by("id"));
+
+        Flux<Scan> scans = after==null ? firstPage.apply(pageable) : nextPage.apply(new ObjectId(after), pageable);
+        return scans.collectList().map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if(page.size()==size){
+                response.header(ScanController.NEXT_CURSOR_HEADER, page.get(page.size()-1).getId());
+            }
+            return response.body(page);
+        });
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Void> handleDuplicateScan(){
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+}
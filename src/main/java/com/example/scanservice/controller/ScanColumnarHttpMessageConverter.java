@@ -0,0 +1,110 @@
+package com.example.scanservice.controller;
+
+import com.example.scanservice.model.Scan;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Writes a list of scans as one JSON object with an array per field, {@code {"userName":[..],"carBrand":[..],
+ * "scoreNumber":[..]}}, for clients that accept {@value #MEDIA_TYPE_VALUE}. The field names appear once instead of
+ * once per scan. Write only, and only for {@code List<Scan>} bodies.
+ */
+@Component
+@Profile("!reactive")
+public class ScanColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<Scan>> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.scans.columnar+json";
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    private final JsonFactory jsonFactory;
+
+    public ScanColumnarHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MEDIA_TYPE);
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public static void writeColumns(List<Scan> scans, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeArrayFieldStart("userName");
+        for (Scan scan : scans) {
+            generator.writeString(scan.getUserName());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("carBrand");
+        for (Scan scan : scans) {
+            generator.writeString(scan.getCarBrand());
+        }
+        generator.writeEndArray();
+        generator.writeArrayFieldStart("scoreNumber");
+        for (Scan scan : scans) {
+            if (scan.getScoreNumber() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeNumber(scan.getScoreNumber());
+            }
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return false;
+    }
+
+    // Without the element type a list of something else could be picked up
+    @Override
+    public boolean canWrite(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (type == null || !canWrite(mediaType)) {
+            return false;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolved.toClass()) && resolved.getGeneric(0).toClass() == Scan.class;
+    }
+
+    @Override
+    protected void writeInternal(List<Scan> scans, Type type, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(StreamUtils.nonClosing(outputMessage.getBody()))) {
+            writeColumns(scans, generator);
+        }
+    }
+
+    @Override
+    public List<Scan> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Columnar scans are write only", inputMessage);
+    }
+
+    @Override
+    protected List<Scan> readInternal(Class<? extends List<Scan>> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Columnar scans are write only", inputMessage);
+    }
+}
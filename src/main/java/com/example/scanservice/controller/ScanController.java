@@ -2,12 +2,57 @@ package com.example.scanservice.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import com.example.scanservice.model.BatchItemResult;
+import com.example.scanservice.model.BrandStats;
 import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScanDeleteResult;
+import com.example.scanservice.model.ScoreCount;
+import com.example.scanservice.model.UserStats;
+import com.example.scanservice.repository.ScanDictionary;
 import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanChangeFeed;
+import com.example.scanservice.service.ScanExporter;
+import com.example.scanservice.service.ScanIngestQueue;
+import com.example.scanservice.service.ScanLookupService;
+import com.example.scanservice.service.ScanStatsService;
+import com.example.scanservice.service.ScanVersionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mongodb.bulk.BulkWriteError;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 class ScanDto {
     private String userName;
@@ -26,71 +71,449 @@ class ScanDto {
 }
 
 @RestController
+@Profile("!reactive")
 public class ScanController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     private ScanRepository scanRepository;
 
-    @PostConstruct
-    public void fillDB(){
-        if(scanRepository.count()==0){
-            scanRepository.save(new Scan("Lode", "Audi",5));
-            scanRepository.save(new Scan("Lode", "Traktor",2));
-            scanRepository.save(new Scan("Johnny", "Lamborghini",5));
-            scanRepository.save(new Scan("Lode", "Volkswagen",3));
-        }
+    @Autowired
+    private ScanLookupService scanLookupService;
+
+    @Autowired
+    private ScanStatsService scanStatsService;
+
+    @Autowired
+    private ScanExporter scanExporter;
+
+    @Autowired
+    private ScanVersionService scanVersionService;
+
+    @Autowired
+    private ScanChangeFeed scanChangeFeed;
+
+    // Only present with scans.storage.dictionary.enabled=true
+    @Autowired(required = false)
+    private ScanDictionary scanDictionary;
+
+    // Only present with scans.ingest.mode=queue
+    @Autowired(required = false)
+    private ScanIngestQueue scanIngestQueue;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${scans.page.max-limit:1000}")
+    private int maxPageLimit;
+
+    @Value("${scans.batch.chunk-size:500}")
+    private int batchChunkSize;
+
+    @GetMapping(value = "/scans/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamScanChanges(@RequestParam(required = false) String userName,
+                                        @RequestParam(required = false) String carBrand){
+        return scanChangeFeed.subscribe(userName == null ? null : normalizeUser(userName),
+                carBrand == null ? null : normalizeBrand(carBrand));
     }
 
     @GetMapping("/scans/user/{userName}")
-    public List<Scan> getScansByUserName(@PathVariable String userName){
-        return scanRepository.findScansByUserName(userName.toLowerCase() );
+    public ResponseEntity<List<Scan>> getScansByUserName(@PathVariable String userName,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) String after,
+                                                         WebRequest request){
+        String user = normalizeUser(userName);
+        if(limit==null && after==null){
+            String tag = scanVersionService.userTag(user);
+            return conditional(request, weak(tag), () -> scanLookupService.findScansByUserName(user, tag));
+        }
+        return page(limit, after,
+                pageable -> scanRepository.findScansByUserName(user, pageable),
+                (id, pageable) -> scanRepository.findScansByUserNameAndIdGreaterThan(user, id, pageable));
+    }
+
+    @GetMapping(value = "/scans/user/{userName}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamScansByUserName(@PathVariable String userName){
+        String user = normalizeUser(userName);
+        return ndjson(() -> scanRepository.streamScansByUserName(user));
     }
 
     @GetMapping("/scans/{carBrand}")
-    public List<Scan> getScansByCarBrand(@PathVariable String carBrand){
-        return scanRepository.findScansByCarBrand(carBrand.toLowerCase());
+    public ResponseEntity<List<Scan>> getScansByCarBrand(@PathVariable String carBrand,
+                                                         @RequestParam(required = false) Integer limit,
+                                                         @RequestParam(required = false) String after,
+                                                         WebRequest request){
+        String brand = normalizeBrand(carBrand);
+        if(limit==null && after==null){
+            String tag = scanVersionService.brandTag(brand);
+            return conditional(request, weak(tag), () -> scanLookupService.findScansByCarBrand(brand, tag));
+        }
+        return page(limit, after,
+                pageable -> scanRepository.findScansByCarBrand(brand, pageable),
+                (id, pageable) -> scanRepository.findScansByCarBrandAndIdGreaterThan(brand, id, pageable));
+    }
+
+    @GetMapping(value = "/scans/{carBrand}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamScansByCarBrand(@PathVariable String carBrand){
+        String brand = normalizeBrand(carBrand);
+        return ndjson(() -> scanRepository.streamScansByCarBrand(brand));
+    }
+
+    @GetMapping("/scans/{carBrand}/top")
+    public ResponseEntity<List<Scan>> getTopScansByCarBrand(@PathVariable String carBrand, @RequestParam(defaultValue = "10") int n){
+        if(n<=0){
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(scanRepository.findScansByCarBrandOrderByScoreNumberDescIdAsc(normalizeBrand(carBrand),
+                Limit.of(Math.min(n, maxPageLimit))));
+    }
+
+    @GetMapping("/scans/stats")
+    public List<BrandStats> getBrandStats(){
+        return scanStatsService.getBrandStats();
+    }
+
+    @GetMapping("/scans/user/{userName}/stats")
+    public ResponseEntity<UserStats> getUserStats(@PathVariable String userName){
+        UserStats stats = scanStatsService.getUserStats(normalizeUser(userName));
+        return stats==null ? ResponseEntity.notFound().build() : ResponseEntity.ok(stats);
     }
 
     @GetMapping("/scans/user/{userName}/car/{carBrand}")
-    public Scan getScanByUserNameAndCarBrand(@PathVariable String userName, @PathVariable String carBrand){
-        return scanRepository.findScanByUserNameAndAndCarBrand(userName.toLowerCase(), carBrand.toLowerCase());
+    public ResponseEntity<Scan> getScanByUserNameAndCarBrand(@PathVariable String userName, @PathVariable String carBrand,
+                                                             WebRequest request){
+        Scan scan = scanLookupService.findScanByUserNameAndCarBrand(normalizeUser(userName), normalizeBrand(carBrand));
+        if(scan==null){
+            return ResponseEntity.ok(null);
+        }
+        return conditional(request, Long.toString(scan.getVersion()), () -> scan);
     }
 
     @GetMapping("/scans")
-    public List<Scan> getScans(){
-        return scanRepository.findAll();
+    public ResponseEntity<List<Scan>> getScans(@RequestParam(required = false) Integer limit,
+                                               @RequestParam(required = false) String after){
+        if(limit==null && after==null){
+            return ResponseEntity.ok(scanRepository.findAll(Sort.by("id")));
+        }
+        return page(limit, after, scanRepository::findScansBy, scanRepository::findScansByIdGreaterThan);
+    }
+
+    @GetMapping(value = "/scans", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamScans(){
+        return ndjson(scanRepository::streamScansBy);
     }
 
+    /**
+     * Snapshot of all scans, or of one user or brand, as a gzip (default), zstd or uncompressed NDJSON download
+     * streamed straight from the cursor.
+     */
+    @GetMapping("/scans/export")
+    public ResponseEntity<StreamingResponseBody> exportScans(@RequestParam(required = false) String userName,
+                                                             @RequestParam(required = false) String carBrand,
+                                                             @RequestParam(defaultValue = "gzip") String compression){
+        ScanExporter.Compression format;
+        try {
+            format = ScanExporter.Compression.valueOf(compression.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        String user = userName==null ? null : normalizeUser(userName);
+        String brand = carBrand==null ? null : normalizeBrand(carBrand);
+        StreamingResponseBody body = outputStream -> scanExporter.export(user, brand, format, outputStream);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("scans" + format.getExtension()).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Stores the scan before answering, or with {@code scans.ingest.mode=queue} queues it for a group commit and
+     * answers 202, or 429 when the queue is full.
+     */
     @PostMapping("/scans")
     @ResponseBody
-    public Scan addScan(@RequestBody ScanDto scanDto){
+    public ResponseEntity<Scan> addScan(@RequestBody ScanDto scanDto){
+        if(scanDto.getUserName()==null || scanDto.getCarBrand()==null || scanDto.getScoreNumber()==null){
+            return ResponseEntity.badRequest().build();
+        }
 
-        Scan newScan = new Scan(scanDto.getUserName().toLowerCase(),scanDto.getCarBrand().toLowerCase(),scanDto.getScoreNumber());
+        Scan newScan = new Scan(normalizeUser(scanDto.getUserName()),normalizeBrand(scanDto.getCarBrand()),scanDto.getScoreNumber());
 
-        scanRepository.save(newScan);
-        return newScan;
+        if(scanIngestQueue!=null){
+            return scanIngestQueue.offer(newScan)
+                    ? ResponseEntity.accepted().body(newScan)
+                    : ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        try{
+            scanRepository.save(newScan);
+        }catch(RuntimeException e){
+            failedWrite(newScan);
+            throw e;
+        }
+        scanLookupService.evictScan(newScan.getUserName(), newScan.getCarBrand());
+        scanStatsService.add(newScan);
+        scanVersionService.changed(newScan);
+        return ResponseEntity.ok().eTag(Long.toString(newScan.getVersion())).body(newScan);
     }
 
-    @PutMapping("/scans")
-    public Scan updateScan(@RequestBody ScanDto updatedScan){
-        Scan retrievedScan = scanRepository.findScanByUserNameAndAndCarBrand(updatedScan.getUserName().toLowerCase(),updatedScan.getCarBrand().toLowerCase());
+    /**
+     * Accepts a JSON array or an NDJSON stream of scans and inserts them in bulk writes of
+     * {@code scans.batch.chunk-size} scans. The body is read incrementally, one chunk at a time.
+     * <p>
+     * In ordered mode processing stops at the first invalid or failing scan, the rest of its chunk is reported as
+     * skipped and nothing after it is read. In unordered mode every scan is attempted.
+     */
+    @PostMapping(value = "/scans/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public List<BatchItemResult> addScans(InputStream body, @RequestParam(defaultValue = "true") boolean ordered) throws IOException {
+        List<BatchItemResult> results = new ArrayList<>();
+        List<Scan> chunk = new ArrayList<>(batchChunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(batchChunkSize);
 
-        retrievedScan.setCarBrand(updatedScan.getCarBrand());
-        retrievedScan.setScoreNumber(updatedScan.getScoreNumber());
+        int index = 0;
+        boolean stopped = false;
+        try (MappingIterator<ScanDto> scanDtos = objectMapper.readerFor(ScanDto.class).readValues(body)) {
+            while (!stopped && scanDtos.hasNextValue()) {
+                ScanDto scanDto = scanDtos.nextValue();
+                if (scanDto.getUserName()==null || scanDto.getCarBrand()==null || scanDto.getScoreNumber()==null) {
+                    results.add(new BatchItemResult(index, BatchItemResult.Status.INVALID, "userName, carBrand and scoreNumber are required"));
+                    if (ordered) {
+                        flushBatch(chunk, chunkIndexes, true, results);
+                        stopped = true;
+                    }
+                } else {
+                    chunk.add(new Scan(normalizeUser(scanDto.getUserName()), normalizeBrand(scanDto.getCarBrand()), scanDto.getScoreNumber()));
+                    chunkIndexes.add(index);
+                    if (chunk.size()==batchChunkSize) {
+                        stopped = !flushBatch(chunk, chunkIndexes, ordered, results) && ordered;
+                    }
+                }
+                index++;
+            }
+        } catch (JsonProcessingException e) {
+            // The rest of the body cannot be resynchronised, so the malformed item ends the batch.
+            results.add(new BatchItemResult(index, BatchItemResult.Status.INVALID, e.getOriginalMessage()));
+        }
+        if (!stopped) {
+            flushBatch(chunk, chunkIndexes, ordered, results);
+        }
 
-        scanRepository.save(retrievedScan);
+        results.sort(Comparator.comparingInt(BatchItemResult::getIndex));
+        return results;
+    }
 
-        return retrievedScan;
+    /**
+     * Sets the score of an existing scan, or inserts it with {@code upsert=true}. With an {@code If-Match} header
+     * holding the entity tag of the scan (its version) the update only happens while the scan still has that version,
+     * otherwise the answer is 412 and nothing is written; {@code If-Match: *} only requires the scan to exist.
+     */
+    @PutMapping("/scans")
+    public ResponseEntity<Scan> updateScan(@RequestBody ScanDto updatedScan, @RequestParam(defaultValue = "false") boolean upsert,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        if(updatedScan.getUserName()==null || updatedScan.getCarBrand()==null || updatedScan.getScoreNumber()==null){
+            return ResponseEntity.badRequest().build();
+        }
+        Scan scan = new Scan(normalizeUser(updatedScan.getUserName()), normalizeBrand(updatedScan.getCarBrand()), updatedScan.getScoreNumber());
+        Scan previous;
+        try{
+            if(ifMatch==null){
+                previous = scanRepository.getAndSetScoreNumber(scan.getUserName(), scan.getCarBrand(), scan.getScoreNumber(), upsert);
+            }else{
+                previous = ifMatch.trim().equals("*")
+                        ? scanRepository.getAndSetScoreNumber(scan.getUserName(), scan.getCarBrand(), scan.getScoreNumber(), false)
+                        : scanRepository.getAndSetScoreNumber(scan.getUserName(), scan.getCarBrand(), scan.getScoreNumber(), versions(ifMatch));
+            }
+        }catch(RuntimeException e){
+            failedWrite(scan);
+            throw e;
+        }
+        if(previous==null && ifMatch==null && !upsert){
+            return ResponseEntity.notFound().build();
+        }
+        if(previous==null && ifMatch!=null){
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        scanLookupService.evictScan(scan.getUserName(), scan.getCarBrand());
+        if(previous!=null){
+            scanStatsService.remove(previous);
+        }
+        scanStatsService.add(scan);
+        scanVersionService.changed(scan);
+        // An upsert that inserted the scan incremented a missing version to 1
+        long version = previous==null ? 1 : previous.getVersion() + 1;
+        return ResponseEntity.ok().eTag(Long.toString(version)).body(scan);
     }
 
     @DeleteMapping("/scans/user/{userName}/car/{carBrand}")
-    public <T> ResponseEntity<T> deleteScan(@PathVariable String userName, @PathVariable String carBrand){
-        Scan scan = scanRepository.findScanByUserNameAndAndCarBrand(userName.toLowerCase(), carBrand.toLowerCase());
-        if(scan!=null){
-            scanRepository.delete(scan);
-            return ResponseEntity.ok().build();
+    public ResponseEntity<ScanDeleteResult> deleteScan(@PathVariable String userName, @PathVariable String carBrand){
+        Scan scan = new Scan(normalizeUser(userName), normalizeBrand(carBrand), null);
+        Scan deleted;
+        try{
+            deleted = scanRepository.removeScanByUserNameAndCarBrand(scan.getUserName(), scan.getCarBrand());
+        }catch(RuntimeException e){
+            failedWrite(scan);
+            throw e;
+        }
+        if(deleted!=null){
+            scanLookupService.evictScan(deleted.getUserName(), deleted.getCarBrand());
+            scanStatsService.remove(deleted);
+            scanVersionService.changed(deleted);
+            return ResponseEntity.ok(new ScanDeleteResult(1));
         }else{
             return ResponseEntity.notFound().build();
         }
     }
+
+    @DeleteMapping("/scans/user/{userName}")
+    public ScanDeleteResult deleteScansByUserName(@PathVariable String userName){
+        String user = normalizeUser(userName);
+        Set<String> brands = new HashSet<>();
+        try{
+            return new ScanDeleteResult(deleteAndCount(user, null, scoreCount -> brands.add(scoreCount.getCarBrand()),
+                    () -> scanRepository.deleteScansByUserName(user)));
+        }finally{
+            // Also after a failed delete, which may have removed part of the scans
+            scanLookupService.evictUser(user);
+            scanVersionService.changedUser(user, brands);
+        }
+    }
+
+    @DeleteMapping("/scans/{carBrand}")
+    public ScanDeleteResult deleteScansByCarBrand(@PathVariable String carBrand){
+        String brand = normalizeBrand(carBrand);
+        try{
+            return new ScanDeleteResult(deleteAndCount(null, brand, scoreCount -> {}, () -> scanRepository.deleteScansByCarBrand(brand)));
+        }finally{
+            scanLookupService.evictCarBrand(brand);
+            // Every user of the brand changed, reading them all would cost as much as the delete itself
+            scanVersionService.changedAll();
+        }
+    }
+
+    // Writes the pending chunk and records a result per scan, returns false when any scan in it was not inserted.
+    private boolean flushBatch(List<Scan> chunk, List<Integer> chunkIndexes, boolean ordered, List<BatchItemResult> results){
+        if(chunk.isEmpty()){
+            return true;
+        }
+        List<BulkWriteError> errors = scanRepository.bulkInsert(chunk, ordered);
+        List<BatchItemResult> chunkResults = BatchItemResult.ofBulkWrite(chunkIndexes, errors, ordered);
+        List<Scan> created = new ArrayList<>(chunk.size());
+        for(int i=0; i<chunk.size(); i++){
+            if(chunkResults.get(i).getStatus()==BatchItemResult.Status.CREATED){
+                scanLookupService.evictScan(chunk.get(i).getUserName(), chunk.get(i).getCarBrand());
+                scanStatsService.add(chunk.get(i));
+                created.add(chunk.get(i));
+            }
+        }
+        scanVersionService.changed(created);
+        results.addAll(chunkResults);
+        chunk.clear();
+        chunkIndexes.clear();
+        return errors.isEmpty();
+    }
+
+    // Takes the scans out of the statistics from one aggregation row per user, brand and score read through a cursor,
+    // then removes them with a single deleteMany. Scans written in between are corrected by the next reconciliation.
+    private long deleteAndCount(String userName, String carBrand, Consumer<ScoreCount> onScoreCount, LongSupplier delete){
+        try (Stream<ScoreCount> scoreCounts = scanRepository.streamScoreCounts(userName, carBrand)) {
+            scoreCounts.forEach(scoreCount -> {
+                scanStatsService.remove(scoreCount);
+                onScoreCount.accept(scoreCount);
+            });
+        }
+        try {
+            return delete.getAsLong();
+        } catch (RuntimeException e) {
+            scanStatsService.invalidate();
+            throw e;
+        }
+    }
+
+    // The tags are bumped after a write, not with it. A write that failed may still have reached MongoDB, so its scan
+    // is reported changed anyway rather than leaving a tag that no longer matches the scans.
+    private void failedWrite(Scan scan){
+        scanLookupService.evictScan(scan.getUserName(), scan.getCarBrand());
+        scanVersionService.changed(scan);
+    }
+
+    // Path and body values are case-insensitive. With the dictionary enabled a known value costs no new string.
+    private String normalizeUser(String userName){
+        return scanDictionary == null ? userName.toLowerCase() : scanDictionary.normalize(ScanDictionary.Field.USER_NAME, userName);
+    }
+
+    private String normalizeBrand(String carBrand){
+        return scanDictionary == null ? carBrand.toLowerCase() : scanDictionary.normalize(ScanDictionary.Field.CAR_BRAND, carBrand);
+    }
+
+    // The tag is read before the body, so a response never carries a newer tag than its body. A matching
+    // If-None-Match is answered with 304 without reading or serializing the body. The tag is the same for every
+    // format the body can be negotiated in, hence the Vary.
+    private <T> ResponseEntity<T> conditional(WebRequest request, String etag, Supplier<T> body){
+        if(request.checkNotModified(etag)){
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(body.get());
+    }
+
+    // List tags cover every format and encoding of the body. Tomcat also only compresses responses without a strong tag.
+    private static String weak(String tag){
+        return "W/\"" + tag + "\"";
+    }
+
+    // The versions in an If-Match list of strong entity tags; weak and unparsable tags never match.
+    private static List<Long> versions(String ifMatch){
+        List<Long> versions = new ArrayList<>();
+        for(String tag : ifMatch.split(",")){
+            String trimmed = tag.trim();
+            if(trimmed.length()>2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")){
+                try{
+                    versions.add(Long.parseLong(trimmed.substring(1, trimmed.length()-1)));
+                }catch(NumberFormatException e){
+                    // Not a tag handed out by this service
+                }
+            }
+        }
+        return versions;
+    }
+
+    // One page of at most limit scans in id order, the id of the last scan is handed out as the cursor for the next page.
+    private ResponseEntity<List<Scan>> page(Integer limit, String after,
+                                            Function<Pageable, List<Scan>> firstPage,
+                                            BiFunction<ObjectId, Pageable, List<Scan>> nextPage){
+        if((limit!=null && limit<=0) || (after!=null && !ObjectId.isValid(after))){
+            return ResponseEntity.badRequest().build();
+        }
+        int size = limit==null ? maxPageLimit : Math.min(limit, maxPageLimit);
+        Pageable pageable = PageRequest.of(0, size, Sort.by("id"));
+
+        List<Scan> scans = after==null ? firstPage.apply(pageable) : nextPage.apply(new ObjectId(after), pageable);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if(scans.size()==size){
+            response.header(NEXT_CURSOR_HEADER, scans.get(scans.size()-1).getId());
+        }
+        return response.body(scans);
+    }
+
+    // Writes one JSON document per line while the cursor is read, so nothing but the current batch is held in memory.
+    private ResponseEntity<StreamingResponseBody> ndjson(Supplier<Stream<Scan>> query){
+        ObjectWriter writer = objectMapper.writerFor(Scan.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<Scan> scans = query.get();
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                for (Scan scan : (Iterable<Scan>) scans::iterator) {
+                    writer.writeValue(generator, scan);
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<Void> handleDuplicateScan(){
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
 }
@@ -0,0 +1,66 @@
+package com.example.scanservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.mongodb.bulk.BulkWriteError;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status { CREATED, DUPLICATE, INVALID, FAILED, SKIPPED }
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private final int index;
+    private final Status status;
+    private final String message;
+
+    public BatchItemResult(int index, Status status, String message) {
+        this.index = index;
+        this.status = status;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Maps the outcome of one bulk insert to a result per scan.
+     *
+     * @param indexes position in the request of every scan that was part of the bulk write
+     * @param errors  the write errors, indexed by position in the bulk write
+     */
+    public static List<BatchItemResult> ofBulkWrite(List<Integer> indexes, List<BulkWriteError> errors, boolean ordered) {
+        Map<Integer, BulkWriteError> errorsByPosition = errors.stream()
+                .collect(Collectors.toMap(BulkWriteError::getIndex, Function.identity()));
+        int firstError = errors.stream().mapToInt(BulkWriteError::getIndex).min().orElse(indexes.size());
+
+        List<BatchItemResult> results = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            BulkWriteError error = errorsByPosition.get(i);
+            if (error != null) {
+                Status status = error.getCode() == DUPLICATE_KEY_ERROR ? Status.DUPLICATE : Status.FAILED;
+                results.add(new BatchItemResult(indexes.get(i), status, error.getMessage()));
+            } else if (ordered && i > firstError) {
+                results.add(new BatchItemResult(indexes.get(i), Status.SKIPPED, null));
+            } else {
+                results.add(new BatchItemResult(indexes.get(i), Status.CREATED, null));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.scanservice.model;
+
+public class BrandStats extends ScoreStats {
+
+    private final String carBrand;
+
+    public BrandStats(String carBrand, long count, double average, Integer min, Integer max) {
+        super(count, average, min, max);
+        this.carBrand = carBrand;
+    }
+
+    public String getCarBrand() {
+        return carBrand;
+    }
+}
@@ -1,15 +1,28 @@
 package com.example.scanservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "scans")
+@CompoundIndexes({
+        @CompoundIndex(name = "userName_carBrand", def = "{'userName': 1, 'carBrand': 1}", unique = true),
+        @CompoundIndex(name = "userName_id", def = "{'userName': 1, '_id': 1}"),
+        @CompoundIndex(name = "carBrand_id", def = "{'carBrand': 1, '_id': 1}"),
+        @CompoundIndex(name = "carBrand_scoreNumber", def = "{'carBrand': 1, 'scoreNumber': -1, '_id': 1}")
+})
 public class Scan {
     @Id
     private String id;
     private String userName;
     private String carBrand;
     private Integer scoreNumber;
+    // Set to 0 on insert and incremented by every update; scans written by a bulk insert start without one
+    @Version
+    private Long version;
 
     public Scan() {
     }
@@ -20,6 +33,16 @@ public class Scan {
         this.scoreNumber = scoreNumber;
     }
 
+    @JsonIgnore
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getUserName() {
         return userName;
     }
@@ -44,4 +67,9 @@ public class Scan {
         this.scoreNumber = scoreNumber;
     }
 
+    @JsonIgnore
+    public long getVersion() {
+        return version == null ? 0 : version;
+    }
+
 }
@@ -0,0 +1,14 @@
+package com.example.scanservice.model;
+
+public class ScanDeleteResult {
+
+    private final long deletedCount;
+
+    public ScanDeleteResult(long deletedCount) {
+        this.deletedCount = deletedCount;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.scanservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The code a userName or carBrand value is stored as when {@code scans.storage.dictionary.enabled=true}. Codes are
+ * numbered from 0 per field and never reused.
+ */
+@Document(collection = "scanDictionary")
+@CompoundIndexes({
+        @CompoundIndex(name = "field_value", def = "{'field': 1, 'value': 1}", unique = true),
+        @CompoundIndex(name = "field_code", def = "{'field': 1, 'code': 1}", unique = true)
+})
+public class ScanDictionaryEntry {
+    @Id
+    private String id;
+    private String field;
+    private String value;
+    private int code;
+
+    public ScanDictionaryEntry() {
+    }
+
+    public ScanDictionaryEntry(String field, String value, int code) {
+        this.field = field;
+        this.value = value;
+        this.code = code;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public int getCode() {
+        return code;
+    }
+}
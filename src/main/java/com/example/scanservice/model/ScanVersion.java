@@ -0,0 +1,31 @@
+package com.example.scanservice.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A counter that is incremented on every write to the scans of one user or one brand, so readers can tell whether
+ * those scans changed without reading them.
+ */
+@Document(collection = "scanVersions")
+public class ScanVersion {
+    @Id
+    private String id;
+    private long version;
+
+    public ScanVersion() {
+    }
+
+    public ScanVersion(String id, long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.scanservice.model;
+
+/**
+ * Number of scans of one user and brand with one score, a row of {@code ScanRepositoryCustom#streamScoreCounts}.
+ */
+public class ScoreCount {
+
+    private final String userName;
+    private final String carBrand;
+    private final int scoreNumber;
+    private final long count;
+
+    public ScoreCount(String userName, String carBrand, int scoreNumber, long count) {
+        this.userName = userName;
+        this.carBrand = carBrand;
+        this.scoreNumber = scoreNumber;
+        this.count = count;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getCarBrand() {
+        return carBrand;
+    }
+
+    public int getScoreNumber() {
+        return scoreNumber;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
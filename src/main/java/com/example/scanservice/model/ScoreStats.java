@@ -0,0 +1,45 @@
+package com.example.scanservice.model;
+
+import java.util.Objects;
+
+/**
+ * Count, average, min and max of the scores of a group of scans. Scans without a score are not counted.
+ */
+public abstract class ScoreStats {
+
+    private final long count;
+    private final double average;
+    private final Integer min;
+    private final Integer max;
+
+    protected ScoreStats(long count, double average, Integer min, Integer max) {
+        this.count = count;
+        this.average = average;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public Integer getMin() {
+        return min;
+    }
+
+    public Integer getMax() {
+        return max;
+    }
+
+    // The average is compared with a tolerance, MongoDB and sum / count may round differently.
+    public boolean sameAs(ScoreStats other) {
+        return count == other.count
+                && Math.abs(average - other.average) <= 1e-9 * Math.max(1, Math.abs(average))
+                && Objects.equals(min, other.min)
+                && Objects.equals(max, other.max);
+    }
+}
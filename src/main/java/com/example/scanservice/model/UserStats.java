@@ -0,0 +1,15 @@
+package com.example.scanservice.model;
+
+public class UserStats extends ScoreStats {
+
+    private final String userName;
+
+    public UserStats(String userName, long count, double average, Integer min, Integer max) {
+        super(count, average, min, max);
+        this.userName = userName;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+}
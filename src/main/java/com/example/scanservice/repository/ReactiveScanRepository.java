@@ -0,0 +1,36 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.Scan;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link ScanRepository}, used when the service runs with the reactive profile.
+ */
+@Repository
+public interface ReactiveScanRepository extends ReactiveMongoRepository<Scan, String>, ReactiveScanRepositoryCustom {
+    @Query(sort = "{ '_id': 1 }")
+    Flux<Scan> findScansByUserName(String userName);
+    @Query(sort = "{ '_id': 1 }")
+    Flux<Scan> findScansByCarBrand(String carBrand);
+    Mono<Scan> findScanByUserNameAndCarBrand(String userName, String carBrand);
+
+    Flux<Scan> findScansBy(Pageable pageable);
+    Flux<Scan> findScansByIdGreaterThan(ObjectId after, Pageable pageable);
+    Flux<Scan> findScansByUserName(String userName, Pageable pageable);
+    Flux<Scan> findScansByUserNameAndIdGreaterThan(String userName, ObjectId after, Pageable pageable);
+    Flux<Scan> findScansByCarBrand(String carBrand, Pageable pageable);
+    Flux<Scan> findScansByCarBrandAndIdGreaterThan(String carBrand, ObjectId after, Pageable pageable);
+
+    Flux<Scan> findScansByCarBrandOrderByScoreNumberDescIdAsc(String carBrand, Limit limit);
+
+    Mono<Long> deleteScanByUserNameAndCarBrand(String userName, String carBrand);
+    Mono<Long> deleteScansByUserName(String userName);
+    Mono<Long> deleteScansByCarBrand(String carBrand);
+}
@@ -0,0 +1,20 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.mongodb.bulk.BulkWriteError;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * @see ScanRepositoryCustom
+ */
+public interface ReactiveScanRepositoryCustom {
+    Mono<List<BulkWriteError>> bulkInsert(List<Scan> scans, boolean ordered);
+
+    Mono<Scan> updateScoreNumber(String userName, String carBrand, Integer scoreNumber, boolean upsert);
+
+    Flux<BrandStats> findBrandStats();
+}
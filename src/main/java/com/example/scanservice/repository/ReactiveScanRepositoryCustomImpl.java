@@ -0,0 +1,60 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class ReactiveScanRepositoryCustomImpl implements ReactiveScanRepositoryCustom {
+
+    @Autowired
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Override
+    public Mono<List<BulkWriteError>> bulkInsert(List<Scan> scans, boolean ordered) {
+        if (scans.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<InsertOneModel<Document>> inserts = scans.stream()
+                .map(scan -> {
+                    Document document = new Document();
+                    reactiveMongoTemplate.getConverter().write(scan, document);
+                    return new InsertOneModel<>(document);
+                })
+                .toList();
+
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Scan.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(inserts, new BulkWriteOptions().ordered(ordered))))
+                .map(result -> List.<BulkWriteError>of())
+                .onErrorResume(MongoBulkWriteException.class, e -> Mono.just(e.getWriteErrors()));
+    }
+
+    @Override
+    public Mono<Scan> updateScoreNumber(String userName, String carBrand, Integer scoreNumber, boolean upsert) {
+        Query query = Query.query(where("userName").is(userName).and("carBrand").is(carBrand));
+        Update update = Update.update("scoreNumber", scoreNumber).inc("version", 1);
+        FindAndModifyOptions options = FindAndModifyOptions.options().returnNew(true).upsert(upsert);
+        Mono<Scan> findAndModify = reactiveMongoTemplate.findAndModify(query, update, options, Scan.class);
+        return findAndModify.onErrorResume(DuplicateKeyException.class, e -> findAndModify);
+    }
+
+    @Override
+    public Flux<BrandStats> findBrandStats() {
+        return reactiveMongoTemplate.aggregate(ScanRepositoryCustomImpl.BRAND_STATS, Scan.class, BrandStats.class);
+    }
+}
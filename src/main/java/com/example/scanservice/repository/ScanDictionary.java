@@ -0,0 +1,260 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.ScanDictionaryEntry;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+/**
+ * Stores userName and carBrand values as small integer codes, kept in the {@code scanDictionary} collection and
+ * cached in memory in both directions. Only present with {@code scans.storage.dictionary.enabled=true}.
+ * <p>
+ * The conversion is a property value converter on the mapped fields, so queries, updates and results of
+ * {@link ScanRepository} keep working with strings. A value gets its code the first time it is written; looking up a
+ * value without a code matches no scan and does not add it. Scans stored as strings before the dictionary was enabled
+ * still read, but queries no longer find them, so enable it on an empty collection or re-import an export.
+ * <p>
+ * Values without a code are remembered for {@code scans.storage.dictionary.miss-ttl}, so repeated lookups of an
+ * unknown user or brand do not query the dictionary every time. The codes are read and added with blocking calls from
+ * inside the object mapping, which is why the dictionary refuses to start under the {@code reactive} profile.
+ */
+@Component
+@ConditionalOnProperty(name = "scans.storage.dictionary.enabled", havingValue = "true")
+public class ScanDictionary {
+
+    public enum Field {
+        USER_NAME("userName"),
+        CAR_BRAND("carBrand");
+
+        private final String fieldName;
+
+        Field(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        static Field of(String fieldName) {
+            return Arrays.stream(values())
+                    .filter(field -> field.fieldName.equals(fieldName))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("Unknown dictionary field '" + fieldName + "'"));
+        }
+    }
+
+    // What a query value without a code is written as, no scan holds it
+    static final int UNKNOWN = -1;
+
+    private static final Logger log = LoggerFactory.getLogger(ScanDictionary.class);
+
+    private static final int MAX_MISSES = 10_000;
+
+    private static class Codes {
+        final Map<String, Integer> byValue = new ConcurrentHashMap<>();
+        // Finds the stored value for any capitalization of it
+        final Map<String, String> byValueIgnoringCase = new ConcurrentSkipListMap<>(String.CASE_INSENSITIVE_ORDER);
+        // Replaced on every new code, so readers never see a half-filled array
+        volatile String[] byCode = new String[0];
+
+        synchronized void put(String value, int code) {
+            String[] values = Arrays.copyOf(byCode, Math.max(byCode.length, code + 1));
+            values[code] = value;
+            byCode = values;
+            byValueIgnoringCase.put(value, value);
+            byValue.put(value, code);
+        }
+    }
+
+    // Provided lazily: the template's converter is built with this dictionary
+    @Autowired
+    private ObjectProvider<MongoTemplate> mongoTemplate;
+
+    @Autowired
+    private Environment environment;
+
+    @Value("${scans.storage.dictionary.miss-ttl:PT1M}")
+    private Duration missTtl;
+
+    private final Map<Field, Codes> codes = Map.of(Field.USER_NAME, new Codes(), Field.CAR_BRAND, new Codes());
+
+    // Values looked up without a code, bounded and expiring: another instance may add them
+    private Map<Field, Cache<String, Boolean>> misses;
+
+    private volatile boolean loaded;
+
+    @PostConstruct
+    public void init() {
+        if (environment.acceptsProfiles(Profiles.of("reactive"))) {
+            throw new IllegalStateException("scans.storage.dictionary.enabled=true is not supported with the reactive profile, "
+                    + "the dictionary would block the event loop");
+        }
+        misses = Map.of(Field.USER_NAME, missCache(), Field.CAR_BRAND, missCache());
+    }
+
+    /**
+     * Lower cases {@code value} like {@link com.example.scanservice.model.Scan} does, returning the cached instance
+     * instead of a new string for values in the dictionary.
+     */
+    public String normalize(Field field, String value) {
+        load();
+        String known = codes.get(field).byValueIgnoringCase.get(value);
+        return known != null && isLowerCaseOf(value, known) ? known : value.toLowerCase();
+    }
+
+    /**
+     * @return the code of {@code value}, added to the dictionary when it has none yet
+     */
+    public int encode(Field field, String value) {
+        load();
+        Integer code = codes.get(field).byValue.get(value);
+        return code != null ? code : add(field, value);
+    }
+
+    /**
+     * @return the code of {@code value}, or {@link #UNKNOWN} when it has none
+     */
+    public int find(Field field, String value) {
+        load();
+        Integer code = codes.get(field).byValue.get(value);
+        if (code != null) {
+            return code;
+        }
+        Cache<String, Boolean> fieldMisses = misses.get(field);
+        if (fieldMisses.getIfPresent(value) != null) {
+            return UNKNOWN;
+        }
+        // Possibly added by another instance
+        ScanDictionaryEntry entry = mongoTemplate.getObject().findOne(
+                query(where("field").is(field.fieldName).and("value").is(value)), ScanDictionaryEntry.class);
+        if (entry == null) {
+            fieldMisses.put(value, Boolean.TRUE);
+            return UNKNOWN;
+        }
+        return cache(entry);
+    }
+
+    public String decode(Field field, int code) {
+        load();
+        String[] values = codes.get(field).byCode;
+        if (code < values.length && values[code] != null) {
+            return values[code];
+        }
+        ScanDictionaryEntry entry = mongoTemplate.getObject().findOne(
+                query(where("field").is(field.fieldName).and("code").is(code)), ScanDictionaryEntry.class);
+        if (entry == null) {
+            throw new IllegalStateException("No " + field.fieldName + " with code " + code + " in the dictionary");
+        }
+        cache(entry);
+        return entry.getValue();
+    }
+
+    /**
+     * The converter to register for a property holding values of {@code field}.
+     */
+    public MongoValueConverter<String, Object> converter(Field field) {
+        return new MongoValueConverter<>() {
+            @Override
+            public String read(Object stored, MongoConversionContext context) {
+                return stored instanceof Number code ? decode(field, code.intValue()) : stored.toString();
+            }
+
+            @Override
+            public Object write(String value, MongoConversionContext context) {
+                MongoConversionContext.OperatorContext operator = context.getOperatorContext();
+                boolean query = operator != null && !operator.isWriteOperation();
+                return query ? find(field, value) : encode(field, value);
+            }
+        };
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            MongoTemplate template = mongoTemplate.getObject();
+            IndexOperations indexOps = template.indexOps(ScanDictionaryEntry.class);
+            new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext())
+                    .resolveIndexFor(ScanDictionaryEntry.class)
+                    .forEach(indexOps::createIndex);
+            template.findAll(ScanDictionaryEntry.class).forEach(this::cache);
+            loaded = true;
+            log.info("Loaded {} user names and {} car brands from the dictionary",
+                    codes.get(Field.USER_NAME).byValue.size(), codes.get(Field.CAR_BRAND).byValue.size());
+        }
+    }
+
+    // Takes the next code after the highest one; a value or code another writer took first is looked up again.
+    private int add(Field field, String value) {
+        MongoTemplate template = mongoTemplate.getObject();
+        while (true) {
+            ScanDictionaryEntry existing = template.findOne(
+                    query(where("field").is(field.fieldName).and("value").is(value)), ScanDictionaryEntry.class);
+            if (existing != null) {
+                return cache(existing);
+            }
+            ScanDictionaryEntry last = template.findOne(
+                    query(where("field").is(field.fieldName)).with(Sort.by(Sort.Direction.DESC, "code")).limit(1),
+                    ScanDictionaryEntry.class);
+            try {
+                return cache(template.insert(new ScanDictionaryEntry(field.fieldName, value, last == null ? 0 : last.getCode() + 1)));
+            } catch (DuplicateKeyException e) {
+                log.debug("Dictionary entry for {} '{}' raced with another writer, retrying", field.fieldName, value);
+            }
+        }
+    }
+
+    private int cache(ScanDictionaryEntry entry) {
+        Field field = Field.of(entry.getField());
+        codes.get(field).put(entry.getValue(), entry.getCode());
+        misses.get(field).invalidate(entry.getValue());
+        return entry.getCode();
+    }
+
+    private Cache<String, Boolean> missCache() {
+        return Caffeine.newBuilder().maximumSize(MAX_MISSES).expireAfterWrite(missTtl).build();
+    }
+
+    // Compares character by character so it allocates nothing; whatever it cannot confirm goes through toLowerCase.
+    private static boolean isLowerCaseOf(String value, String lowerCase) {
+        if (value.length() != lowerCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.toLowerCase(value.charAt(i)) != lowerCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
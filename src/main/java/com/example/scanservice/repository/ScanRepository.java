@@ -1,13 +1,47 @@
 package com.example.scanservice.repository;
 
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.stream.Stream;
 import com.example.scanservice.model.Scan;
 
 @Repository
-public interface ScanRepository extends MongoRepository<Scan, String> {
+public interface ScanRepository extends MongoRepository<Scan, String>, ScanRepositoryCustom {
+    @Query(sort = "{ '_id': 1 }")
     List<Scan> findScansByUserName(String userName);
+    @Query(sort = "{ '_id': 1 }")
     List<Scan> findScansByCarBrand(String carBrand);
     Scan findScanByUserNameAndAndCarBrand(String userName, String carBrand);
+
+    // Keyset pagination: pass a Pageable sorted on id and the id of the last scan of the previous page.
+    List<Scan> findScansBy(Pageable pageable);
+    List<Scan> findScansByIdGreaterThan(ObjectId after, Pageable pageable);
+    List<Scan> findScansByUserName(String userName, Pageable pageable);
+    List<Scan> findScansByUserNameAndIdGreaterThan(String userName, ObjectId after, Pageable pageable);
+    List<Scan> findScansByCarBrand(String carBrand, Pageable pageable);
+    List<Scan> findScansByCarBrandAndIdGreaterThan(String carBrand, ObjectId after, Pageable pageable);
+
+    // Reads the first entries of the (carBrand, scoreNumber, _id) index, cost is bound by the limit.
+    List<Scan> findScansByCarBrandOrderByScoreNumberDescIdAsc(String carBrand, Limit limit);
+
+    // Each runs as a single delete command and returns the number of deleted scans.
+    long deleteScansByUserName(String userName);
+    long deleteScansByCarBrand(String carBrand);
+
+    // Returns what was removed, for callers that keep derived state, in a single findAndModify. Bulk deletes account
+    // for what they remove with streamScoreCounts instead.
+    Scan removeScanByUserNameAndCarBrand(String userName, String carBrand);
+
+    // Cursor backed, the caller has to close the stream.
+    @Query(sort = "{ '_id': 1 }")
+    Stream<Scan> streamScansBy();
+    @Query(sort = "{ '_id': 1 }")
+    Stream<Scan> streamScansByUserName(String userName);
+    @Query(sort = "{ '_id': 1 }")
+    Stream<Scan> streamScansByCarBrand(String carBrand);
 }
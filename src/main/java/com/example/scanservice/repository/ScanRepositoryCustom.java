@@ -0,0 +1,77 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScoreCount;
+import com.example.scanservice.model.UserStats;
+import com.mongodb.bulk.BulkWriteError;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ScanRepositoryCustom {
+    /**
+     * Inserts all scans with a single bulk write.
+     *
+     * @param ordered when true the server stops at the first failing scan, otherwise it attempts every scan
+     * @return the failed writes, indexed by position in {@code scans}; empty when every scan was inserted
+     */
+    List<BulkWriteError> bulkInsert(List<Scan> scans, boolean ordered);
+
+    /**
+     * Sets the score of every (userName, carBrand) pair in {@code scans} with a single unordered bulk write,
+     * inserting the pairs that do not exist yet. Running it again with the same scans changes nothing.
+     *
+     * @return the number of scans that were updated or inserted
+     */
+    long bulkUpsert(List<Scan> scans);
+
+    /**
+     * Sets the score of the (userName, carBrand) scan in one server-side findAndModify and returns the scan as it was
+     * before the update.
+     *
+     * @param upsert insert the scan when it does not exist yet
+     * @return the previous scan, or null when there was none (and it was inserted if upsert is true)
+     */
+    Scan getAndSetScoreNumber(String userName, String carBrand, Integer scoreNumber, boolean upsert);
+
+    /**
+     * Same as {@link #getAndSetScoreNumber} without upsert, but only updates the scan while its version is one of
+     * {@code versions}.
+     *
+     * @return the previous scan, or null when there is no scan with one of those versions
+     */
+    Scan getAndSetScoreNumber(String userName, String carBrand, Integer scoreNumber, Collection<Long> versions);
+
+    /**
+     * Count, average, min and max score per brand in one aggregation, ordered by brand.
+     * The pipeline only reads carBrand and scoreNumber so it can be answered from the carBrand_scoreNumber index.
+     */
+    List<BrandStats> findBrandStats();
+
+    /**
+     * Same as {@link #findBrandStats()} per user, ordered by user name.
+     */
+    List<UserStats> findUserStats();
+
+    /**
+     * Same as {@link #findUserStats()} for one user, matched on the userName index before grouping.
+     *
+     * @return the stats of the user, or null when the user has no scored scans
+     */
+    UserStats findUserStats(String userName);
+
+    /**
+     * Every scan matching the filters that are not null, read through a cursor in the order MongoDB returns them.
+     * The stream holds the cursor open and must be closed.
+     */
+    Stream<Scan> streamScans(String userName, String carBrand);
+
+    /**
+     * Number of scans per (userName, carBrand, scoreNumber) among the scored scans matching the filters that are not
+     * null, in one aggregation read through a cursor. Lets callers that keep derived state account for a bulk delete
+     * without loading the scans. The stream holds the cursor open and must be closed.
+     */
+    Stream<ScoreCount> streamScoreCounts(String userName, String carBrand);
+}
@@ -0,0 +1,199 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScoreCount;
+import com.example.scanservice.model.UserStats;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class ScanRepositoryCustomImpl implements ScanRepositoryCustom {
+
+    static final Aggregation BRAND_STATS = scoreStats("carBrand", where("scoreNumber").ne(null));
+    static final Aggregation USER_STATS = scoreStats("userName", where("scoreNumber").ne(null));
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Only present with scans.storage.dictionary.enabled=true
+    @Autowired(required = false)
+    private ScanDictionary scanDictionary;
+
+    @Override
+    public List<BulkWriteError> bulkInsert(List<Scan> scans, boolean ordered) {
+        if (scans.isEmpty()) {
+            return List.of();
+        }
+        BulkOperations.BulkMode mode = ordered ? BulkOperations.BulkMode.ORDERED : BulkOperations.BulkMode.UNORDERED;
+        try {
+            mongoTemplate.bulkOps(mode, Scan.class).insert(scans).execute();
+            return List.of();
+        } catch (BulkOperationException e) {
+            return e.getErrors();
+        }
+    }
+
+    @Override
+    public long bulkUpsert(List<Scan> scans) {
+        if (scans.isEmpty()) {
+            return 0;
+        }
+        scans.forEach(scan -> encode(scan.getUserName(), scan.getCarBrand()));
+        try {
+            return upserted(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Scan.class).upsert(upserts(scans)).execute());
+        } catch (BulkOperationException e) {
+            // Only concurrent upserts of the same new pair can fail here: one inserted it, the retry updates it.
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY_ERROR)) {
+                throw e;
+            }
+            List<Scan> retries = e.getErrors().stream().map(error -> scans.get(error.getIndex())).toList();
+            BulkWriteResult retried = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Scan.class).upsert(upserts(retries)).execute();
+            return upserted(e.getResult()) + upserted(retried);
+        }
+    }
+
+    @Override
+    public Scan getAndSetScoreNumber(String userName, String carBrand, Integer scoreNumber, boolean upsert) {
+        return findAndModifyScoreNumber(userName, carBrand, scoreNumber, null, upsert);
+    }
+
+    @Override
+    public Scan getAndSetScoreNumber(String userName, String carBrand, Integer scoreNumber, Collection<Long> versions) {
+        return findAndModifyScoreNumber(userName, carBrand, scoreNumber, versions, false);
+    }
+
+    @Override
+    public List<BrandStats> findBrandStats() {
+        List<BrandStats> stats = mongoTemplate.aggregate(BRAND_STATS, Scan.class, BrandStats.class).getMappedResults();
+        return scanDictionary == null ? stats : stats.stream().sorted(Comparator.comparing(BrandStats::getCarBrand)).toList();
+    }
+
+    @Override
+    public List<UserStats> findUserStats() {
+        List<UserStats> stats = mongoTemplate.aggregate(USER_STATS, Scan.class, UserStats.class).getMappedResults();
+        return scanDictionary == null ? stats : stats.stream().sorted(Comparator.comparing(UserStats::getUserName)).toList();
+    }
+
+    @Override
+    public UserStats findUserStats(String userName) {
+        Aggregation userStats = scoreStats("userName", where("userName").is(userName).and("scoreNumber").ne(null));
+        return mongoTemplate.aggregate(userStats, Scan.class, UserStats.class).getUniqueMappedResult();
+    }
+
+    private Scan findAndModifyScoreNumber(String userName, String carBrand, Integer scoreNumber, Collection<Long> versions,
+                                          boolean upsert) {
+        if (upsert) {
+            encode(userName, carBrand);
+        }
+        Query query = Query.query(where("userName").is(userName).and("carBrand").is(carBrand));
+        if (versions != null) {
+            query.addCriteria(where("version").in(withUnversioned(versions)));
+        }
+        Update update = Update.update("scoreNumber", scoreNumber).inc("version", 1);
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(upsert);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, Scan.class);
+        } catch (DuplicateKeyException e) {
+            // Two concurrent upserts of the same new pair: one inserted it, so this one can now update it.
+            return mongoTemplate.findAndModify(query, update, options, Scan.class);
+        }
+    }
+
+    @Override
+    public Stream<Scan> streamScans(String userName, String carBrand) {
+        Query query = new Query().cursorBatchSize(EXPORT_BATCH_SIZE);
+        if (userName != null) {
+            query.addCriteria(where("userName").is(userName));
+        }
+        if (carBrand != null) {
+            query.addCriteria(where("carBrand").is(carBrand));
+        }
+        return mongoTemplate.stream(query, Scan.class);
+    }
+
+    @Override
+    public Stream<ScoreCount> streamScoreCounts(String userName, String carBrand) {
+        Criteria criteria = where("scoreNumber").ne(null);
+        if (userName != null) {
+            criteria.and("userName").is(userName);
+        }
+        if (carBrand != null) {
+            criteria.and("carBrand").is(carBrand);
+        }
+        Aggregation aggregation = newAggregation(
+                match(criteria),
+                group("userName", "carBrand", "scoreNumber").count().as("count"),
+                project("userName", "carBrand", "scoreNumber", "count").andExclude("_id"))
+                .withOptions(Aggregation.newAggregationOptions().cursorBatchSize(EXPORT_BATCH_SIZE).build());
+        return mongoTemplate.aggregateStream(aggregation, Scan.class, ScoreCount.class);
+    }
+
+    // An upsert inserts the values of its query, which only get a dictionary code when they are written.
+    private void encode(String userName, String carBrand) {
+        if (scanDictionary != null) {
+            scanDictionary.encode(ScanDictionary.Field.USER_NAME, userName);
+            scanDictionary.encode(ScanDictionary.Field.CAR_BRAND, carBrand);
+        }
+    }
+
+    private static List<Pair<Query, Update>> upserts(List<Scan> scans) {
+        return scans.stream()
+                .map(scan -> Pair.of(
+                        Query.query(where("userName").is(scan.getUserName()).and("carBrand").is(scan.getCarBrand())),
+                        Update.update("scoreNumber", scan.getScoreNumber()).inc("version", 1)))
+                .toList();
+    }
+
+    // Bulk inserted scans have no version field yet, which is version 0
+    private static List<Long> withUnversioned(Collection<Long> versions) {
+        List<Long> matching = new ArrayList<>(versions);
+        if (versions.contains(0L)) {
+            matching.add(null);
+        }
+        return matching;
+    }
+
+    private static long upserted(BulkWriteResult result) {
+        return result.getMatchedCount() + result.getUpserts().size();
+    }
+
+    // Scans without a score are left out. Sorting on the group key first lets the brand pipeline run on the
+    // carBrand_scoreNumber index instead of fetching documents.
+    private static Aggregation scoreStats(String key, Criteria criteria) {
+        return newAggregation(
+                match(criteria),
+                sort(Sort.by(key)),
+                project(key, "scoreNumber").andExclude("_id"),
+                group(key)
+                        .count().as("count")
+                        .avg("scoreNumber").as("average")
+                        .min("scoreNumber").as("min")
+                        .max("scoreNumber").as("max"),
+                project("count", "average", "min", "max").and(key).previousOperation(),
+                sort(Sort.by(key)));
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.ScanVersion;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ScanVersionRepository extends MongoRepository<ScanVersion, String>, ScanVersionRepositoryCustom {
+}
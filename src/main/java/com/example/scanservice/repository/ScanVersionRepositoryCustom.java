@@ -0,0 +1,11 @@
+package com.example.scanservice.repository;
+
+import java.util.Collection;
+
+public interface ScanVersionRepositoryCustom {
+    /**
+     * Increments the counters with the given ids in a single unordered bulk write, creating the ones that do not
+     * exist yet.
+     */
+    void increment(Collection<String> ids);
+}
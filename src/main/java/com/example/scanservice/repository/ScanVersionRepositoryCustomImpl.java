@@ -0,0 +1,47 @@
+package com.example.scanservice.repository;
+
+import com.example.scanservice.model.ScanVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.Pair;
+
+import java.util.Collection;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class ScanVersionRepositoryCustomImpl implements ScanVersionRepositoryCustom {
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void increment(Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> counters = List.copyOf(ids);
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ScanVersion.class).upsert(increments(counters)).execute();
+        } catch (BulkOperationException e) {
+            // Only concurrent increments of the same new counter can fail here: one created it, the retry increments it.
+            if (e.getErrors().stream().anyMatch(error -> error.getCode() != DUPLICATE_KEY_ERROR)) {
+                throw e;
+            }
+            List<String> retries = e.getErrors().stream().map(error -> counters.get(error.getIndex())).toList();
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ScanVersion.class).upsert(increments(retries)).execute();
+        }
+    }
+
+    private static List<Pair<Query, Update>> increments(List<String> ids) {
+        return ids.stream()
+                .map(id -> Pair.of(Query.query(where("_id").is(id)), new Update().inc("version", 1)))
+                .toList();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.scanservice.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a file through a fixed-size buffer and keeps the byte offset of the end of the last line,
+ * so a later run can continue from there.
+ */
+class OffsetLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long position;
+
+    OffsetLineReader(Path file, long offset) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        channel.position(offset);
+        position = offset;
+        buffer.flip();
+    }
+
+    /**
+     * @return the next line without its line terminator, or null at the end of the file
+     */
+    String readLine() throws IOException {
+        lineLength = 0;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read <= 0) {
+                    return lineLength == 0 ? null : decode();
+                }
+            }
+            byte next = buffer.get();
+            position++;
+            if (next == '\n') {
+                return decode();
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = next;
+        }
+    }
+
+    // Offset just past the last line returned by readLine().
+    long position() {
+        return position;
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private String decode() {
+        int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
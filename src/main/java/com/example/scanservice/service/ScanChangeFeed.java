@@ -0,0 +1,297 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes inserted and updated scans to {@code GET /scans/stream} subscribers as Server-Sent Events.
+ * <p>
+ * A single MongoDB change stream on the scans collection feeds every subscriber, so it sees writes from every instance
+ * and needs a replica set; against a standalone server it is not opened at all and subscribers only get heartbeats. It
+ * is not opened either when nothing can subscribe, in the import and export commands. Each subscriber has a
+ * buffer of {@code scans.stream.buffer-size} events and its own sender thread. A subscriber whose buffer is full reads
+ * slower than scans change and is dropped, the others never wait for it. An idle stream gets a comment every
+ * {@code scans.stream.heartbeat-interval} and ends after {@code scans.stream.timeout}; clients are expected to
+ * reconnect.
+ */
+@Service
+@Profile("!reactive")
+public class ScanChangeFeed implements SmartLifecycle {
+
+    public record Change(String operation, Scan scan) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ScanChangeFeed.class);
+
+    private static final List<Bson> PIPELINE = List.of(
+            Aggregates.match(Filters.in("operationType", "insert", "update", "replace")));
+    // Resume token no longer in the oplog: continue from now instead
+    private static final Set<Integer> RESUME_FAILED = Set.of(280, 286);
+    // $changeStream is only supported on replica sets
+    private static final int NOT_A_REPLICA_SET = 40573;
+    private static final int COMMAND_NOT_FOUND = 59;
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(1);
+
+    private static class Subscriber {
+        final SseEmitter emitter;
+        final String userName;
+        final String carBrand;
+        final BlockingQueue<Change> buffer;
+        volatile boolean closed;
+        volatile boolean dropped;
+
+        Subscriber(SseEmitter emitter, String userName, String carBrand, int bufferSize) {
+            this.emitter = emitter;
+            this.userName = userName;
+            this.carBrand = carBrand;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        boolean matches(Scan scan) {
+            return (userName == null || userName.equals(scan.getUserName()))
+                    && (carBrand == null || carBrand.equals(scan.getCarBrand()));
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${scans.stream.buffer-size:256}")
+    private int bufferSize;
+
+    @Value("${scans.stream.heartbeat-interval:PT15S}")
+    private Duration heartbeatInterval;
+
+    @Value("${scans.stream.timeout:PT30M}")
+    private Duration timeout;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private Thread watcher;
+    private Counter dropped;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("scans.stream.subscribers", subscribers, Set::size)
+                .description("Open GET /scans/stream connections")
+                .register(meterRegistry);
+        dropped = Counter.builder("scans.stream.dropped")
+                .description("Subscribers dropped because they could not keep up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param userName only scans of this user, or null for all users
+     * @param carBrand only scans of this brand, or null for all brands
+     */
+    public SseEmitter subscribe(String userName, String carBrand) {
+        return subscribe(new SseEmitter(timeout.toMillis()), userName, carBrand);
+    }
+
+    public SseEmitter subscribe(SseEmitter emitter, String userName, String carBrand) {
+        Subscriber subscriber = new Subscriber(emitter, userName, carBrand, bufferSize);
+        emitter.onCompletion(() -> close(subscriber));
+        emitter.onTimeout(() -> close(subscriber));
+        emitter.onError(e -> close(subscriber));
+        subscribers.add(subscriber);
+        Thread.ofVirtual().name("scan-stream-sender").start(() -> send(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    // Never blocks: a subscriber without room for the change is dropped instead.
+    public void publish(Change change) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.matches(change.scan()) && !subscriber.buffer.offer(change)) {
+                subscriber.dropped = true;
+                close(subscriber);
+                dropped.increment();
+            }
+        }
+    }
+
+    public boolean isWatching() {
+        return watcher != null && watcher.isAlive();
+    }
+
+    // Without a web application there is no GET /scans/stream to feed
+    @Override
+    public boolean isAutoStartup() {
+        return applicationContext instanceof WebApplicationContext;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        watcher = Thread.ofVirtual().name("scan-change-stream").start(this::watch);
+    }
+
+    // Runs before the web server shuts down gracefully, which would otherwise wait for the open streams.
+    @Override
+    public void stop() {
+        running = false;
+        watcher.interrupt();
+        for (Subscriber subscriber : subscribers) {
+            close(subscriber);
+            subscriber.emitter.complete();
+        }
+        try {
+            watcher.join(Duration.ofSeconds(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    private void send(Subscriber subscriber) {
+        try {
+            while (!subscriber.closed) {
+                Change change = subscriber.buffer.poll(heartbeatInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (subscriber.closed) {
+                    break;
+                }
+                if (change == null) {
+                    subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .name(change.operation())
+                            .data(change.scan(), MediaType.APPLICATION_JSON));
+                }
+            }
+            if (subscriber.dropped) {
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away, or the stream already ended
+            close(subscriber);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reopens the change stream after a failure, after the last change seen when its resume token is still valid.
+    private void watch() {
+        if (standalone()) {
+            log.info("MongoDB does not run as a replica set, GET /scans/stream sends no changes");
+            return;
+        }
+        BsonDocument resumeToken = null;
+        Duration backoff = MIN_BACKOFF;
+        while (running) {
+            ChangeStreamIterable<Document> changes = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Scan.class))
+                    .watch(PIPELINE)
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .maxAwaitTime(1, TimeUnit.SECONDS);
+            if (resumeToken != null) {
+                changes = changes.resumeAfter(resumeToken);
+            }
+            try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = changes.cursor()) {
+                log.info("Watching changes to scans");
+                backoff = MIN_BACKOFF;
+                while (running) {
+                    ChangeStreamDocument<Document> change = cursor.tryNext();
+                    if (change == null) {
+                        continue;
+                    }
+                    resumeToken = change.getResumeToken();
+                    // Null when an updated scan was deleted before the lookup
+                    if (change.getFullDocument() != null) {
+                        publish(new Change(change.getOperationType().getValue(),
+                                mongoTemplate.getConverter().read(Scan.class, change.getFullDocument())));
+                    }
+                }
+            } catch (MongoException e) {
+                if (!running) {
+                    return;
+                }
+                if (e.getCode() == NOT_A_REPLICA_SET) {
+                    log.info("MongoDB does not run as a replica set, GET /scans/stream sends no changes");
+                    return;
+                }
+                if (e instanceof MongoCommandException commandException && RESUME_FAILED.contains(commandException.getErrorCode())) {
+                    resumeToken = null;
+                }
+                log.warn("Change stream on scans failed, retrying in {}: {}", backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = backoff.multipliedBy(2).compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    // A replica set member reports its set, mongos reports isdbgrid. Servers before 4.4.2 only know the older isMaster.
+    // When the server cannot be asked, the change stream itself finds out.
+    private boolean standalone() {
+        try {
+            Document hello;
+            try {
+                hello = mongoTemplate.getDb().runCommand(new Document("hello", 1));
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() != COMMAND_NOT_FOUND) {
+                    throw e;
+                }
+                hello = mongoTemplate.getDb().runCommand(new Document("isMaster", 1));
+            }
+            return !hello.containsKey("setName") && !"isdbgrid".equals(hello.get("msg"));
+        } catch (MongoException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.luben.zstd.ZstdOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the scans collection, optionally filtered by user and brand, as compressed NDJSON. Scans go from the
+ * MongoDB cursor through the compressor to the target one at a time, so memory use does not depend on the number of
+ * scans. The output is in the format {@link ScanImporter} reads.
+ */
+@Service
+public class ScanExporter {
+
+    public enum Compression {
+        NONE("application/x-ndjson", ".ndjson"),
+        GZIP("application/gzip", ".ndjson.gz"),
+        ZSTD("application/zstd", ".ndjson.zst");
+
+        private final String contentType;
+        private final String extension;
+
+        Compression(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Compression of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            return name.endsWith(".gz") ? GZIP : name.endsWith(".zst") ? ZSTD : NONE;
+        }
+
+        private OutputStream wrap(OutputStream out) throws IOException {
+            return switch (this) {
+                case NONE -> out;
+                case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+                case ZSTD -> new ZstdOutputStream(out);
+            };
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Writes the matching scans to {@code out}, which is left open.
+     *
+     * @param userName only scans of this user, or null for every user
+     * @param carBrand only scans of this brand, or null for every brand
+     * @return the number of scans written
+     */
+    public long export(String userName, String carBrand, Compression compression, OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Scan.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        OutputStream compressed = compression.wrap(new NonClosingOutputStream(out));
+        try (Stream<Scan> scans = scanRepository.streamScans(userName, carBrand);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(compressed)) {
+            generator.setRootValueSeparator(null);
+            for (Scan scan : (Iterable<Scan>) scans::iterator) {
+                writer.writeValue(generator, scan);
+                generator.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Writes next to the target first, so a failed export leaves neither a truncated file nor the partial one behind.
+    public long export(String userName, String carBrand, Compression compression, Path file) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            long count;
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                count = export(userName, carBrand, compression, out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return count;
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // Closing the compressor has to finish the stream without closing the response or file underneath it.
+    private static class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Imports userName/carBrand/scoreNumber records from an NDJSON or CSV file into the scans collection.
+ * <p>
+ * The file is read line by line through a fixed buffer and written in unordered bulk upserts of
+ * {@code scans.import.batch-size} scans, {@code scans.import.parallelism} at a time. Upserts make a batch safe to
+ * write twice, so after every batch that completed in file order the byte offset behind it is saved to the
+ * checkpoint file and a new run continues from there. The checkpoint is removed once the whole file is imported. When
+ * a pair occurs more than once in the file, which score ends up stored is not defined.
+ * <p>
+ * CSV fields may be quoted as in RFC 4180, with {@code ""} for a quote inside one. A quoted field cannot hold a line
+ * break, a record left with an open quote is counted as invalid.
+ */
+@Service
+public class ScanImporter {
+
+    public enum Format {
+        NDJSON, CSV;
+
+        public static Format of(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    public record Result(long rows, long written, long invalid, long resumedFrom, Duration elapsed) {
+    }
+
+    private record Batch(Future<?> write, long endOffset) {
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ScanImporter.class);
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ObjectProvider<ScanStatsService> scanStatsService;
+
+    @Autowired
+    private ScanVersionService scanVersionService;
+
+    @Value("${scans.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${scans.import.parallelism:4}")
+    private int parallelism;
+
+    @Value("${scans.import.progress-interval:PT5S}")
+    private Duration progressInterval;
+
+    public Result importFile(Path file, Format format, Path checkpoint) throws IOException, InterruptedException {
+        long resumedFrom = Files.exists(checkpoint) ? Long.parseLong(Files.readString(checkpoint).trim()) : 0;
+        long started = System.nanoTime();
+        long rows = 0;
+        long invalid = 0;
+        LongAdder written = new LongAdder();
+
+        ExecutorService writers = Executors.newFixedThreadPool(parallelism);
+        // Bounds the scans held in memory to the batches being written plus as many waiting.
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        Deque<Batch> batches = new ArrayDeque<>();
+        long checkpointed = resumedFrom;
+        long nextProgress = System.nanoTime() + progressInterval.toNanos();
+
+        try (OffsetLineReader reader = new OffsetLineReader(file, resumedFrom)) {
+            log.info("Importing {} ({} bytes) as {}{}", file, reader.size(), format,
+                    resumedFrom > 0 ? " from checkpoint offset " + resumedFrom : "");
+            List<Scan> batch = new ArrayList<>(batchSize);
+            boolean firstLine = resumedFrom == 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                boolean header = firstLine && isHeader(line, format);
+                firstLine = false;
+                if (line.isBlank() || header) {
+                    continue;
+                }
+                rows++;
+                Scan scan = parse(line, format);
+                if (scan == null) {
+                    invalid++;
+                    if (invalid <= 10) {
+                        log.warn("Skipping invalid record ending at offset {}: {}", reader.position(), line);
+                    }
+                } else {
+                    batch.add(scan);
+                }
+                if (batch.size() == batchSize) {
+                    batches.add(write(writers, inFlight, batch, reader.position(), written));
+                    batch = new ArrayList<>(batchSize);
+                    checkpointed = advance(batches, checkpoint, checkpointed);
+                }
+                if (System.nanoTime() > nextProgress) {
+                    logProgress(rows, written.sum(), invalid, reader.position(), reader.size(), started);
+                    nextProgress = System.nanoTime() + progressInterval.toNanos();
+                }
+            }
+            if (!batch.isEmpty()) {
+                batches.add(write(writers, inFlight, batch, reader.position(), written));
+            }
+            for (Batch pending : batches) {
+                await(pending);
+            }
+            checkpointed = advance(batches, checkpoint, checkpointed);
+            logProgress(rows, written.sum(), invalid, reader.position(), reader.size(), started);
+        } finally {
+            writers.shutdownNow();
+            if (!batches.isEmpty()) {
+                log.warn("Import stopped, a new run continues from offset {}", checkpointed);
+            }
+            // One shared counter for the whole import instead of one per user and brand in it, also when it stopped
+            // halfway
+            if (written.sum() > 0) {
+                scanVersionService.changedAll();
+            }
+        }
+
+        Files.deleteIfExists(checkpoint);
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        scanStatsService.ifAvailable(ScanStatsService::rebuild);
+        return new Result(rows, written.sum(), invalid, resumedFrom, Duration.ofNanos(System.nanoTime() - started));
+    }
+
+    private Batch write(ExecutorService writers, Semaphore inFlight, List<Scan> batch, long endOffset, LongAdder written)
+            throws InterruptedException {
+        inFlight.acquire();
+        Future<?> write = writers.submit(() -> {
+            try {
+                written.add(scanRepository.bulkUpsert(batch));
+            } finally {
+                inFlight.release();
+            }
+        });
+        return new Batch(write, endOffset);
+    }
+
+    // Saves the offset behind the longest run of completed batches, a failed batch ends the import.
+    private long advance(Deque<Batch> batches, Path checkpoint, long checkpointed) throws IOException, InterruptedException {
+        long offset = checkpointed;
+        while (!batches.isEmpty() && batches.peekFirst().write().isDone()) {
+            await(batches.peekFirst());
+            offset = batches.pollFirst().endOffset();
+        }
+        if (offset != checkpointed) {
+            Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+            Files.writeString(temporary, Long.toString(offset));
+            Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return offset;
+    }
+
+    private static void await(Batch batch) throws InterruptedException {
+        try {
+            batch.write().get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Writing scans up to offset " + batch.endOffset() + " failed", e.getCause());
+        }
+    }
+
+    private Scan parse(String line, Format format) {
+        return format == Format.CSV ? parseCsv(line) : parseJson(line);
+    }
+
+    private Scan parseJson(String line) {
+        try {
+            JsonNode record = objectMapper.readTree(line);
+            JsonNode userName = record.get("userName");
+            JsonNode carBrand = record.get("carBrand");
+            JsonNode scoreNumber = record.get("scoreNumber");
+            if (userName == null || !userName.isTextual() || carBrand == null || !carBrand.isTextual()
+                    || scoreNumber == null || !scoreNumber.canConvertToInt()) {
+                return null;
+            }
+            return new Scan(userName.asText(), carBrand.asText(), scoreNumber.asInt());
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Scan parseCsv(String line) {
+        List<String> fields = splitCsv(line);
+        if (fields == null || fields.size() != 3) {
+            return null;
+        }
+        String userName = fields.get(0);
+        String carBrand = fields.get(1);
+        try {
+            return userName.isEmpty() || carBrand.isEmpty() ? null : new Scan(userName, carBrand, Integer.parseInt(fields.get(2)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // The fields of a CSV record, trimmed and unquoted, or null when a quote is left open or followed by more text.
+    private static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(3);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            while (i < line.length() && line.charAt(i) <= ' ') {
+                i++;
+            }
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    int quote = line.indexOf('"', i);
+                    if (quote < 0) {
+                        return null;
+                    }
+                    field.append(line, i, quote);
+                    i = quote + 1;
+                    if (i < line.length() && line.charAt(i) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                while (i < line.length() && line.charAt(i) <= ' ') {
+                    i++;
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    return null;
+                }
+                fields.add(field.toString());
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? line.length() : comma;
+                String unquoted = line.substring(i, end).trim();
+                if (unquoted.indexOf('"') >= 0) {
+                    return null;
+                }
+                fields.add(unquoted);
+                i = end;
+            }
+            field.setLength(0);
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++;
+        }
+    }
+
+    private static boolean isHeader(String line, Format format) {
+        return format == Format.CSV && line.trim().toLowerCase().startsWith("username");
+    }
+
+    private static void logProgress(long rows, long written, long invalid, long offset, long size, long started) {
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("Imported {} rows ({} written, {} invalid), {}% of the file, {} rows/s",
+                rows, written, invalid, size == 0 ? 100 : offset * 100 / size, Math.round(rows / Math.max(seconds, 1e-3)));
+    }
+}
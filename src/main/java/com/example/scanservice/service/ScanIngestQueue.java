@@ -0,0 +1,278 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.mongodb.bulk.BulkWriteError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion for {@code POST /scans}, enabled with {@code scans.ingest.mode=queue}.
+ * <p>
+ * Accepted scans wait in a bounded queue until one of {@code scans.ingest.writers} background writers inserts them
+ * in a single unordered bulk write, as soon as {@code scans.ingest.batch-size} scans are waiting or
+ * {@code scans.ingest.max-wait} after the first one arrived. When the queue is full, {@code scans.ingest.when-full}
+ * either rejects right away or blocks the request for up to {@code scans.ingest.block-timeout}.
+ * <p>
+ * Scans are only acknowledged as accepted, a scan that turns out to be a duplicate is counted in
+ * {@code scans.ingest.failed} instead of answered with 409. A group commit that fails as a whole, on a failover or a
+ * pool timeout, is retried {@code scans.ingest.retries} times with exponential backoff from
+ * {@code scans.ingest.retry-backoff}; only then are its scans counted as failed. Every scan gets its id before the
+ * first try, so a retry recognises the scans an earlier try already wrote. On shutdown the queue is drained after the
+ * web server has stopped taking requests.
+ */
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(name = "scans.ingest.mode", havingValue = "queue")
+public class ScanIngestQueue implements SmartLifecycle {
+
+    public enum WhenFull { REJECT, BLOCK }
+
+    private static final Logger log = LoggerFactory.getLogger(ScanIngestQueue.class);
+
+    // Stops after the web server (and its graceful shutdown), so no request can add to a queue that is being drained.
+    private static final int PHASE = Integer.MAX_VALUE - 2048;
+
+    private static final int DUPLICATE_KEY_ERROR = 11000;
+
+    private record Pending(Scan scan, long enqueuedAt) {
+    }
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanLookupService scanLookupService;
+
+    @Autowired
+    private ScanStatsService scanStatsService;
+
+    @Autowired
+    private ScanVersionService scanVersionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${scans.ingest.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${scans.ingest.batch-size:500}")
+    private int batchSize;
+
+    @Value("${scans.ingest.max-wait:PT0.05S}")
+    private Duration maxWait;
+
+    @Value("${scans.ingest.writers:1}")
+    private int writerCount;
+
+    @Value("${scans.ingest.when-full:reject}")
+    private WhenFull whenFull;
+
+    @Value("${scans.ingest.block-timeout:PT5S}")
+    private Duration blockTimeout;
+
+    @Value("${scans.ingest.retries:5}")
+    private int retries;
+
+    @Value("${scans.ingest.retry-backoff:PT0.1S}")
+    private Duration retryBackoff;
+
+    private BlockingQueue<Pending> queue;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean running;
+
+    private Counter rejected;
+    private Counter failed;
+    private Counter retried;
+    private Timer flushLatency;
+    private Timer ingestLag;
+    private DistributionSummary batchSizes;
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("scans.ingest.queue.depth", queue, BlockingQueue::size)
+                .description("Scans accepted but not written yet")
+                .register(meterRegistry);
+        rejected = Counter.builder("scans.ingest.rejected")
+                .description("Scans refused because the queue was full")
+                .register(meterRegistry);
+        failed = Counter.builder("scans.ingest.failed")
+                .description("Accepted scans that could not be written")
+                .register(meterRegistry);
+        retried = Counter.builder("scans.ingest.retried")
+                .description("Group commits tried again after failing as a whole")
+                .register(meterRegistry);
+        flushLatency = Timer.builder("scans.ingest.flush")
+                .description("Duration of one group commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        ingestLag = Timer.builder("scans.ingest.lag")
+                .description("Time from accepting a scan to having written it")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("scans.ingest.batch.size")
+                .description("Scans written per group commit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return false when the queue is full (after waiting, in block mode) or shutting down; the scan is not queued
+     */
+    public boolean offer(Scan scan) {
+        Pending pending = new Pending(scan, System.nanoTime());
+        boolean accepted = false;
+        if (running) {
+            try {
+                accepted = whenFull == WhenFull.BLOCK
+                        ? queue.offer(pending, blockTimeout.toNanos(), TimeUnit.NANOSECONDS)
+                        : queue.offer(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!accepted) {
+            rejected.increment();
+        }
+        return accepted;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        for (int i = 0; i < writerCount; i++) {
+            writers.add(Thread.ofPlatform().name("scan-ingest-" + i).start(this::drain));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        log.info("Draining {} queued scans", queue.size());
+        for (Thread writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        writers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    // Runs until stopped and the queue is empty, a batch is flushed when full or max-wait after its first scan.
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWait.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() == batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) throws InterruptedException {
+        List<Scan> scans = batch.stream().map(Pending::scan).toList();
+        scans.stream().filter(scan -> scan.getId() == null).forEach(scan -> scan.setId(new ObjectId().toHexString()));
+        List<BulkWriteError> errors = null;
+        long start = System.nanoTime();
+        for (int attempt = 0; errors == null; attempt++) {
+            try {
+                errors = scanRepository.bulkInsert(scans, false);
+                if (attempt > 0) {
+                    errors = errors.stream().filter(error -> !writtenBefore(error)).toList();
+                }
+            } catch (RuntimeException e) {
+                if (attempt == retries) {
+                    failed.increment(batch.size());
+                    log.error("Could not write {} queued scans after {} retries", batch.size(), retries, e);
+                    return;
+                }
+                Duration backoff = retryBackoff.multipliedBy(1L << Math.min(attempt, 20));
+                log.warn("Writing {} queued scans failed, retrying in {}: {}", batch.size(), backoff, e.getMessage());
+                retried.increment();
+                Thread.sleep(backoff);
+            }
+        }
+        long written = System.nanoTime();
+        flushLatency.record(written - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+
+        Set<Integer> failedIndexes = errors.stream().map(BulkWriteError::getIndex).collect(Collectors.toSet());
+        List<Scan> inserted = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Scan scan = batch.get(i).scan();
+            if (failedIndexes.contains(i)) {
+                failed.increment();
+            } else {
+                scanLookupService.evictScan(scan.getUserName(), scan.getCarBrand());
+                scanStatsService.add(scan);
+                inserted.add(scan);
+                ingestLag.record(written - batch.get(i).enqueuedAt(), TimeUnit.NANOSECONDS);
+            }
+        }
+        scanVersionService.changed(inserted);
+        if (!errors.isEmpty()) {
+            log.warn("{} of {} queued scans were not written, first error: {}", errors.size(), batch.size(), errors.get(0).getMessage());
+        }
+    }
+
+    // A duplicate id can only come from an earlier try of the same group commit that did reach the server
+    private static boolean writtenBefore(BulkWriteError error) {
+        return error.getCode() == DUPLICATE_KEY_ERROR && error.getMessage().contains("index: _id_");
+    }
+}
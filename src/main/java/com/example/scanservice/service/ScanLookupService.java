@@ -0,0 +1,91 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache in front of the lookups the dashboards poll. Size and TTL come from
+ * {@code spring.cache.caffeine.spec}; every write path has to call one of the evict methods.
+ * <p>
+ * The lists are cached with the {@link ScanVersionService} tag read before they were loaded and only served under that
+ * tag. A list loaded just before a write and cached just after that write evicted it is then reloaded once the write
+ * bumped the tag, instead of being served as the new list.
+ */
+@Service
+public class ScanLookupService {
+
+    public static final String SCANS_BY_USER = "scansByUser";
+    public static final String SCANS_BY_BRAND = "scansByBrand";
+    public static final String SCAN_BY_PAIR = "scanByPair";
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // The tag has to be read before calling these
+    public List<Scan> findScansByUserName(String userName, String tag) {
+        return tagged(SCANS_BY_USER, userName, tag, () -> scanRepository.findScansByUserName(userName));
+    }
+
+    public List<Scan> findScansByCarBrand(String carBrand, String tag) {
+        return tagged(SCANS_BY_BRAND, carBrand, tag, () -> scanRepository.findScansByCarBrand(carBrand));
+    }
+
+    @Cacheable(value = SCAN_BY_PAIR, key = "#userName + '/' + #carBrand")
+    public Scan findScanByUserNameAndCarBrand(String userName, String carBrand) {
+        return scanRepository.findScanByUserNameAndAndCarBrand(userName, carBrand);
+    }
+
+    // A single scan was added, changed or removed.
+    @Caching(evict = {
+            @CacheEvict(value = SCANS_BY_USER, key = "#userName"),
+            @CacheEvict(value = SCANS_BY_BRAND, key = "#carBrand"),
+            @CacheEvict(value = SCAN_BY_PAIR, key = "#userName + '/' + #carBrand")
+    })
+    public void evictScan(String userName, String carBrand) {
+    }
+
+    // All scans of a user were removed, the brands they belonged to are not known here.
+    @Caching(evict = {
+            @CacheEvict(value = SCANS_BY_USER, key = "#userName"),
+            @CacheEvict(value = SCANS_BY_BRAND, allEntries = true),
+            @CacheEvict(value = SCAN_BY_PAIR, allEntries = true)
+    })
+    public void evictUser(String userName) {
+    }
+
+    // All scans of a brand were removed, the users they belonged to are not known here.
+    @Caching(evict = {
+            @CacheEvict(value = SCANS_BY_USER, allEntries = true),
+            @CacheEvict(value = SCANS_BY_BRAND, key = "#carBrand"),
+            @CacheEvict(value = SCAN_BY_PAIR, allEntries = true)
+    })
+    public void evictCarBrand(String carBrand) {
+    }
+
+    private List<Scan> tagged(String cacheName, String key, String tag, Supplier<List<Scan>> load) {
+        Cache cache = cacheManager.getCache(cacheName);
+        TaggedScans cached = cache.get(key, TaggedScans.class);
+        if (cached != null && cached.tag().equals(tag)) {
+            return cached.scans();
+        }
+        List<Scan> scans = load.get();
+        cache.put(key, new TaggedScans(tag, scans));
+        return scans;
+    }
+
+    private record TaggedScans(String tag, List<Scan> scans) {
+    }
+}
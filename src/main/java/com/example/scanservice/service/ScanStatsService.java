@@ -0,0 +1,173 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScoreCount;
+import com.example.scanservice.model.ScoreStats;
+import com.example.scanservice.model.UserStats;
+import com.example.scanservice.repository.ScanRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Score statistics per brand and per user, kept in memory so reading them never queries MongoDB. Every write path
+ * has to report the scans it added or removed, like it evicts them from {@link ScanLookupService}.
+ * <p>
+ * The aggregates are built with one streaming pass over the collection on a background thread once the application is
+ * ready, so startup does not depend on the size of the collection; until that first build completes, reads are answered
+ * by the aggregation pipelines. Afterwards they are compared against the pipelines every
+ * {@code scans.stats.reconcile-interval} and rebuilt on a difference. Writes that run during a rebuild can be missed
+ * by it, the next reconciliation picks that up.
+ */
+@Service
+@Profile("!reactive")
+public class ScanStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanStatsService.class);
+
+    private record Aggregates(Map<String, ScoreAggregate> byBrand, Map<String, ScoreAggregate> byUser) {
+        Aggregates() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    private volatile Aggregates aggregates = new Aggregates();
+
+    private volatile boolean built;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        Thread.ofVirtual().name("scan-stats-build").start(() -> {
+            try {
+                rebuild();
+            } catch (RuntimeException e) {
+                log.warn("Building score statistics failed, retrying at the next reconciliation", e);
+            }
+        });
+    }
+
+    public void add(Scan scan) {
+        if (scan.getScoreNumber() != null) {
+            add(aggregates, scan);
+        }
+    }
+
+    public void remove(Scan scan) {
+        if (scan.getScoreNumber() != null) {
+            Aggregates current = aggregates;
+            current.byBrand.computeIfAbsent(scan.getCarBrand(), brand -> new ScoreAggregate()).remove(scan.getScoreNumber());
+            current.byUser.computeIfAbsent(scan.getUserName(), user -> new ScoreAggregate()).remove(scan.getScoreNumber());
+        }
+    }
+
+    // Scans removed by a bulk delete, reported per user, brand and score
+    public void remove(ScoreCount scoreCount) {
+        Aggregates current = aggregates;
+        current.byBrand.computeIfAbsent(scoreCount.getCarBrand(), brand -> new ScoreAggregate())
+                .remove(scoreCount.getScoreNumber(), scoreCount.getCount());
+        current.byUser.computeIfAbsent(scoreCount.getUserName(), user -> new ScoreAggregate())
+                .remove(scoreCount.getScoreNumber(), scoreCount.getCount());
+    }
+
+    // The aggregates no longer follow the collection: reads use the pipelines until the next reconciliation rebuilds.
+    public void invalidate() {
+        built = false;
+    }
+
+    public List<BrandStats> getBrandStats() {
+        if (!built) {
+            return scanRepository.findBrandStats();
+        }
+        return stats(aggregates.byBrand, (brand, aggregate) ->
+                new BrandStats(brand, aggregate.count(), aggregate.average(), aggregate.min(), aggregate.max()));
+    }
+
+    public UserStats getUserStats(String userName) {
+        if (!built) {
+            return scanRepository.findUserStats(userName);
+        }
+        ScoreAggregate aggregate = aggregates.byUser.get(userName);
+        if (aggregate == null || aggregate.count() <= 0) {
+            return null;
+        }
+        return new UserStats(userName, aggregate.count(), aggregate.average(), aggregate.min(), aggregate.max());
+    }
+
+    // Serialized so the last rebuild to finish is also the one that read the collection last
+    public synchronized void rebuild() {
+        Aggregates rebuilt = new Aggregates();
+        long scans = 0;
+        try (Stream<Scan> all = scanRepository.streamScansBy()) {
+            for (Scan scan : (Iterable<Scan>) all::iterator) {
+                if (scan.getScoreNumber() != null) {
+                    add(rebuilt, scan);
+                    scans++;
+                }
+            }
+        }
+        aggregates = rebuilt;
+        built = true;
+        log.info("Score statistics built from {} scans, {} brands and {} users", scans, rebuilt.byBrand.size(), rebuilt.byUser.size());
+    }
+
+    @Scheduled(initialDelayString = "${scans.stats.reconcile-interval:PT5M}", fixedDelayString = "${scans.stats.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!built) {
+            rebuild();
+            return;
+        }
+        Aggregates current = aggregates;
+        List<UserStats> userStats = stats(current.byUser, (user, aggregate) ->
+                new UserStats(user, aggregate.count(), aggregate.average(), aggregate.min(), aggregate.max()));
+
+        boolean brandsMatch = matches(getBrandStats(), scanRepository.findBrandStats(), BrandStats::getCarBrand);
+        boolean usersMatch = matches(userStats, scanRepository.findUserStats(), UserStats::getUserName);
+        if (!brandsMatch || !usersMatch) {
+            log.warn("Score statistics differ from MongoDB (brands match: {}, users match: {}), rebuilding", brandsMatch, usersMatch);
+            rebuild();
+        }
+    }
+
+    private static void add(Aggregates aggregates, Scan scan) {
+        aggregates.byBrand.computeIfAbsent(scan.getCarBrand(), brand -> new ScoreAggregate()).add(scan.getScoreNumber());
+        aggregates.byUser.computeIfAbsent(scan.getUserName(), user -> new ScoreAggregate()).add(scan.getScoreNumber());
+    }
+
+    // Groups whose scans were all removed keep their (empty) aggregate, so a concurrent add to it is never lost.
+    private static <T extends ScoreStats> List<T> stats(Map<String, ScoreAggregate> aggregates,
+                                                        BiFunction<String, ScoreAggregate, T> toStats) {
+        return aggregates.entrySet().stream()
+                .filter(entry -> entry.getValue().count() > 0)
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> toStats.apply(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    private static <T extends ScoreStats> boolean matches(List<T> inMemory, List<T> stored, Function<T, String> key) {
+        if (inMemory.size() != stored.size()) {
+            return false;
+        }
+        Map<String, T> storedByKey = stored.stream().collect(Collectors.toMap(key, Function.identity()));
+        return inMemory.stream().allMatch(stats -> {
+            T other = storedByKey.get(key.apply(stats));
+            return other != null && stats.sameAs(other);
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.scanservice.service;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScanVersion;
+import com.example.scanservice.repository.ScanVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Entity tags for the scans of a user and of a brand, taken from counters in MongoDB so they hold across instances
+ * and are read without reading any scan. Like evicting {@link ScanLookupService}, every write path has to report the
+ * scans it changed. Bulk imports only bump a counter shared by every tag, instead of one counter per scan written.
+ * <p>
+ * Writers bump the counters after writing, also when the write failed, and readers read the tag before the scans. A
+ * response can so carry a newer list under the previous tag, which only costs its client one more full response, but
+ * never an older list under the current tag.
+ * <p>
+ * Scans written to MongoDB by anything other than this service do not change the tags.
+ */
+@Service
+public class ScanVersionService {
+
+    private static final String ALL = "all";
+
+    @Autowired
+    private ScanVersionRepository scanVersionRepository;
+
+    public String userTag(String userName) {
+        return tag(userKey(userName));
+    }
+
+    public String brandTag(String carBrand) {
+        return tag(brandKey(carBrand));
+    }
+
+    public void changed(Scan scan) {
+        changed(List.of(scan));
+    }
+
+    public void changed(Collection<Scan> scans) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Scan scan : scans) {
+            ids.add(userKey(scan.getUserName()));
+            ids.add(brandKey(scan.getCarBrand()));
+        }
+        scanVersionRepository.increment(ids);
+    }
+
+    // All scans of a user were removed, from these brands
+    public void changedUser(String userName, Collection<String> carBrands) {
+        Set<String> ids = new LinkedHashSet<>();
+        ids.add(userKey(userName));
+        carBrands.forEach(carBrand -> ids.add(brandKey(carBrand)));
+        scanVersionRepository.increment(ids);
+    }
+
+    public void changedAll() {
+        scanVersionRepository.increment(List.of(ALL));
+    }
+
+    // The shared counter is read along, one query by _id for both
+    private String tag(String id) {
+        Map<String, Long> versions = scanVersionRepository.findAllById(List.of(id, ALL)).stream()
+                .collect(Collectors.toMap(ScanVersion::getId, ScanVersion::getVersion));
+        return versions.getOrDefault(ALL, 0L) + "." + versions.getOrDefault(id, 0L);
+    }
+
+    private static String userKey(String userName) {
+        return "user:" + userName;
+    }
+
+    private static String brandKey(String carBrand) {
+        return "brand:" + carBrand;
+    }
+}
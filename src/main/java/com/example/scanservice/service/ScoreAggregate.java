@@ -0,0 +1,65 @@
+package com.example.scanservice.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running count, sum, min and max of the scores of one brand or user. Writers on different threads only contend on
+ * the same distinct score, count and sum are striped {@link LongAdder}s.
+ * <p>
+ * Scans are counted per distinct score in a sorted map, so memory follows the number of distinct scores and not their
+ * range: any {@code int} is a valid score.
+ */
+class ScoreAggregate {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+
+    // Number of scans per distinct score. Its first and last key are min and max, so removing the current minimum
+    // or maximum does not need a rescan.
+    private final ConcurrentSkipListMap<Integer, Long> scoreCounts = new ConcurrentSkipListMap<>();
+
+    void add(int score) {
+        scoreCounts.merge(score, 1L, Long::sum);
+        sum.add(score);
+        count.increment();
+    }
+
+    void remove(int score) {
+        remove(score, 1);
+    }
+
+    void remove(int score, long scans) {
+        // The function may run more than once under contention, the last run is the one applied
+        long[] removed = new long[1];
+        scoreCounts.computeIfPresent(score, (s, n) -> {
+            removed[0] = Math.min(n, scans);
+            return n <= scans ? null : n - scans;
+        });
+        // Scans not counted here are left to the next reconciliation
+        if (removed[0] > 0) {
+            sum.add(-score * removed[0]);
+            count.add(-removed[0]);
+        }
+    }
+
+    long count() {
+        return count.sum();
+    }
+
+    double average() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    Integer min() {
+        Map.Entry<Integer, Long> first = scoreCounts.firstEntry();
+        return first == null ? null : first.getKey();
+    }
+
+    Integer max() {
+        Map.Entry<Integer, Long> last = scoreCounts.lastEntry();
+        return last == null ? null : last.getKey();
+    }
+}
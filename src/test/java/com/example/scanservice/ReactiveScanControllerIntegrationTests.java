@@ -0,0 +1,186 @@
+package com.example.scanservice;
+
+import com.example.scanservice.controller.ScanController;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+class ReactiveScanControllerIntegrationTests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+        scanRepository.save(new Scan("Michiel", "Tesla", 4));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenScan_whenGetScansByUserName_thenReturnJsonScans() {
+        webTestClient.get().uri("/scans/user/{userName}", "lode")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].carBrand").isEqualTo("traktor")
+                .jsonPath("$[1].carBrand").isEqualTo("tesla");
+    }
+
+    @Test
+    void givenScan_whenGetScanByUserNameAndCarBrand_thenReturnJsonScan() {
+        webTestClient.get().uri("/scans/user/{userName}/car/{carBrand}", "lode", "tesla")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.userName").isEqualTo("lode")
+                .jsonPath("$.scoreNumber").isEqualTo(2);
+    }
+
+    @Test
+    void givenScans_whenGetTopScansByCarBrand_thenReturnHighestScoresFirst() {
+        webTestClient.get().uri("/scans/{carBrand}/top?n=1", "traktor")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].userName").isEqualTo("johnny");
+    }
+
+    @Test
+    void givenScans_whenGetBrandStats_thenReturnStatsPerBrand() {
+        webTestClient.get().uri("/scans/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(2)
+                .jsonPath("$[0].carBrand").isEqualTo("tesla")
+                .jsonPath("$[0].count").isEqualTo(2)
+                .jsonPath("$[0].max").isEqualTo(4)
+                .jsonPath("$[1].carBrand").isEqualTo("traktor")
+                .jsonPath("$[1].min").isEqualTo(1);
+    }
+
+    @Test
+    void givenScans_whenGetScansPaged_thenReturnPagesWithCursor() {
+        String cursor = webTestClient.get().uri("/scans?limit=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.length()").isEqualTo(3)
+                .returnResult().getResponseHeaders().getFirst(ScanController.NEXT_CURSOR_HEADER);
+
+        webTestClient.get().uri("/scans?limit=3&after={after}", cursor)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(ScanController.NEXT_CURSOR_HEADER)
+                .expectBody().jsonPath("$[0].userName").isEqualTo("michiel");
+    }
+
+    @Test
+    void givenScans_whenStreamScansByCarBrand_thenReturnNdjsonScans() {
+        List<Scan> scans = webTestClient.get().uri("/scans/{carBrand}", "tesla")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Scan.class).getResponseBody().collectList().block();
+
+        assertThat(scans).extracting(Scan::getUserName).containsExactly("lode", "michiel");
+    }
+
+    @Test
+    void whenPostScan_thenReturnJsonScan() {
+        webTestClient.post().uri("/scans")
+                .bodyValue(new Scan("Johnny", "Tesla", 1))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.userName").isEqualTo("johnny")
+                .jsonPath("$.carBrand").isEqualTo("tesla");
+    }
+
+    @Test
+    void whenPostIncompleteScan_thenStatusBadRequest() {
+        webTestClient.post().uri("/scans")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"userName\":\"johnny\",\"scoreNumber\":1}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void givenScan_whenPostSameUserNameAndCarBrand_thenStatusConflict() {
+        webTestClient.post().uri("/scans")
+                .bodyValue(new Scan("Lode", "Traktor", 1))
+                .exchange()
+                .expectStatus().isEqualTo(409);
+    }
+
+    @Test
+    void givenScan_whenPostBatchOrdered_thenStopAtDuplicate() {
+        webTestClient.post().uri("/scans/batch")
+                .bodyValue(List.of(new Scan("Johnny", "Tesla", 5), new Scan("Lode", "Traktor", 1), new Scan("Johnny", "Audi", 2)))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].status").isEqualTo("CREATED")
+                .jsonPath("$[1].status").isEqualTo("DUPLICATE")
+                .jsonPath("$[2].status").isEqualTo("SKIPPED");
+
+        assertThat(scanRepository.findScansByUserName("johnny")).hasSize(2);
+    }
+
+    @Test
+    void givenNoScan_whenPutScanWithUpsert_thenReturnJsonScan() {
+        webTestClient.put().uri("/scans?upsert=true")
+                .bodyValue(new Scan("Michiel", "Volvo", 3))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.scoreNumber").isEqualTo(3);
+
+        webTestClient.put().uri("/scans")
+                .bodyValue(new Scan("Michiel", "Audi", 3))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void givenScans_whenDeleteScansByUserName_thenReturnDeletedCount() {
+        webTestClient.delete().uri("/scans/user/{userName}", "lode")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.deletedCount").isEqualTo(2);
+
+        webTestClient.delete().uri("/scans/user/{userName}/car/{carBrand}", "lode", "tesla")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.scanservice;
+
+import com.example.scanservice.config.AdaptiveConcurrencyLimit;
+import com.example.scanservice.config.AdmissionControlFilter;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Floods the list endpoint while listing takes {@value #READ_ALL_LATENCY_MILLIS}ms and a lookup
+ * {@value #LOOKUP_LATENCY_MILLIS}ms, each holding one of {@value #CONNECTIONS} connections like the MongoDB connection
+ * pool. Without admission control the lists hold every connection and each lookup waits up to a full list latency for
+ * one.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"scans.admission.read-all.initial-limit=4",
+                // Leaves room for a slow test machine, the lookups themselves take far less
+                "scans.admission.lookup.target-latency=PT0.5S"})
+class ScanAdmissionControlTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanAdmissionControlTests.class);
+
+    private static final int CONNECTIONS = 16;
+    private static final long READ_ALL_LATENCY_MILLIS = 1000;
+    private static final long LOOKUP_LATENCY_MILLIS = 10;
+    private static final int LIST_CLIENTS = 3 * CONNECTIONS;
+    private static final int LOOKUP_CLIENTS = 4;
+    private static final int LOOKUPS_PER_CLIENT = 50;
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private AdmissionControlFilter admissionControlFilter;
+
+    @Test
+    void givenSlowResponses_whenReleased_thenShrinkLimitOncePerTargetLatencyDownToMinimum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, Duration.ofSeconds(10), 0.5);
+        long slow = Duration.ofSeconds(11).toNanos();
+
+        assertThat(limit.tryAcquire()).isTrue();
+        limit.release(slow);
+        assertThat(limit.getLimit()).isEqualTo(5);
+
+        // Within the same target latency, the same slowdown
+        assertThat(limit.tryAcquire()).isTrue();
+        limit.release(slow);
+        assertThat(limit.getLimit()).isEqualTo(5);
+
+        AdaptiveConcurrencyLimit floor = new AdaptiveConcurrencyLimit(2, 2, 20, Duration.ZERO, 0.5);
+        assertThat(floor.tryAcquire()).isTrue();
+        floor.release(1);
+        assertThat(floor.getLimit()).isEqualTo(2);
+    }
+
+    @Test
+    void givenFastResponses_whenLimitInUse_thenGrowLimitUpToMaximum() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 2, 6, Duration.ofSeconds(1), 0.5);
+
+        // A single request at a time leaves the limit unused
+        for (int i = 0; i < 100; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+            limit.release(1);
+        }
+        assertThat(limit.getLimit()).isEqualTo(4);
+
+        for (int round = 0; round < 100; round++) {
+            int admitted = 0;
+            while (limit.tryAcquire()) {
+                admitted++;
+            }
+            assertThat(admitted).isEqualTo(limit.getLimit());
+            for (int i = 0; i < admitted; i++) {
+                limit.release(1);
+            }
+        }
+        assertThat(limit.getLimit()).isEqualTo(6);
+    }
+
+    @Test
+    void givenFastServerErrors_whenReleased_thenLimitKeepsItsSize() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 20, Duration.ofSeconds(1), 0.5);
+
+        // All of the limit in use, as successes these would grow it
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+        for (int i = 0; i < 10; i++) {
+            limit.releaseFailed(1);
+        }
+
+        assertThat(limit.getLimit()).isEqualTo(10);
+        assertThat(limit.getInFlight()).isZero();
+    }
+
+    @Test
+    void givenSlowServerErrors_whenReleased_thenShrinkLimit() throws Exception {
+        AdaptiveConcurrencyLimit lookup = admissionControlFilter.getLimit(AdmissionControlFilter.EndpointClass.LOOKUP);
+        int before = lookup.getLimit();
+
+        // Slower than the lookup target latency, like a request that waited for a stalled MongoDB and failed
+        admissionControlFilter.doFilter(new MockHttpServletRequest("GET", "/scans/stats"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    sleep(600);
+                    ((HttpServletResponse) response).setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                });
+
+        assertThat(lookup.getLimit()).isLessThan(before);
+        assertThat(lookup.getInFlight()).isZero();
+    }
+
+    @Test
+    void givenAsyncRequestTimedOut_whenCompletedAfterwards_thenReleaseOnce() throws Exception {
+        AdaptiveConcurrencyLimit readAll = admissionControlFilter.getLimit(AdmissionControlFilter.EndpointClass.READ_ALL);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/scans");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        admissionControlFilter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertThat(readAll.getInFlight()).isEqualTo(1);
+
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext, request, response));
+        }
+        assertThat(readAll.getInFlight()).isZero();
+        asyncContext.complete();
+        assertThat(readAll.getInFlight()).isZero();
+    }
+
+    // Asserts on wall-clock latency, runs with the load tests only
+    @Test
+    @Tag("load")
+    void givenSlowListsFlooding_whenLookingUpScans_thenLookupP99StaysBounded() throws Exception {
+        Semaphore connections = new Semaphore(CONNECTIONS, true);
+        given(scanRepository.findAll(any(Sort.class))).willAnswer(invocation -> {
+            onConnection(connections, READ_ALL_LATENCY_MILLIS);
+            return List.of();
+        });
+        given(scanRepository.findScanByUserNameAndAndCarBrand(anyString(), anyString())).willAnswer(invocation -> {
+            onConnection(connections, LOOKUP_LATENCY_MILLIS);
+            return new Scan(invocation.getArgument(0), invocation.getArgument(1), 1);
+        });
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        // Warm up so the measurement is not dominated by lazy initialisation and JIT compilation.
+        for (int i = 0; i < 50; i++) {
+            get(client, "/scans/user/warmup" + i + "/car/audi");
+        }
+
+        AtomicBoolean flooding = new AtomicBoolean(true);
+        AtomicInteger listsServed = new AtomicInteger();
+        ConcurrentLinkedQueue<String> retryAfters = new ConcurrentLinkedQueue<>();
+        List<Thread> listClients = new ArrayList<>();
+        for (int i = 0; i < LIST_CLIENTS; i++) {
+            listClients.add(Thread.ofVirtual().start(() -> {
+                while (flooding.get()) {
+                    HttpResponse<Void> response = get(client, "/scans");
+                    if (response.statusCode() == 503) {
+                        String retryAfter = response.headers().firstValue(HttpHeaders.RETRY_AFTER).orElseThrow();
+                        retryAfters.add(retryAfter);
+                        sleep(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter)));
+                    } else {
+                        listsServed.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        Thread.sleep(READ_ALL_LATENCY_MILLIS);
+
+        ConcurrentLinkedQueue<Long> lookupMicros = new ConcurrentLinkedQueue<>();
+        AtomicInteger lookupErrors = new AtomicInteger();
+        List<Thread> lookupClients = new ArrayList<>();
+        for (int c = 0; c < LOOKUP_CLIENTS; c++) {
+            int clientId = c;
+            lookupClients.add(Thread.ofVirtual().start(() -> {
+                for (int i = 0; i < LOOKUPS_PER_CLIENT; i++) {
+                    long start = System.nanoTime();
+                    // A distinct user per request so the lookup cache cannot absorb the load.
+                    HttpResponse<Void> response = get(client, "/scans/user/client" + clientId + "user" + i + "/car/audi");
+                    lookupMicros.add((System.nanoTime() - start) / 1000);
+                    if (response.statusCode() != 200) {
+                        lookupErrors.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread lookupClient : lookupClients) {
+            lookupClient.join();
+        }
+        flooding.set(false);
+        for (Thread listClient : listClients) {
+            listClient.join();
+        }
+
+        List<Long> sorted = lookupMicros.stream().sorted().toList();
+        long p50 = sorted.get(sorted.size() / 2);
+        long p99 = sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+        AdaptiveConcurrencyLimit readAll = admissionControlFilter.getLimit(AdmissionControlFilter.EndpointClass.READ_ALL);
+        log.info("lookups under list overload: p50 {}us, p99 {}us; lists served {}, rejected {}, read-all limit {}",
+                p50, p99, listsServed.get(), retryAfters.size(), readAll.getLimit());
+
+        assertThat(lookupErrors).hasValue(0);
+        assertThat(sorted).hasSize(LOOKUP_CLIENTS * LOOKUPS_PER_CLIENT);
+        assertThat(p99).as("lookup p99 in us").isLessThan(TimeUnit.MILLISECONDS.toMicros(READ_ALL_LATENCY_MILLIS / 2));
+        assertThat(retryAfters).isNotEmpty().allMatch("1"::equals);
+        assertThat(listsServed).hasPositiveValue();
+    }
+
+    private static void onConnection(Semaphore connections, long millis) throws InterruptedException {
+        connections.acquire();
+        try {
+            Thread.sleep(millis);
+        } finally {
+            connections.release();
+        }
+    }
+
+    private HttpResponse<Void> get(HttpClient client, String path) {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
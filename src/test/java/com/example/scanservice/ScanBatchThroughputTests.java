@@ -0,0 +1,100 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScanBatchThroughputTests {
+
+    private static final int SCANS = 2000;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void whenPostLargeBatch_thenEveryScanInserted() throws Exception {
+        postBatch(scans("batch", SCANS));
+
+        assertThat(scanRepository.count()).isEqualTo(SCANS);
+    }
+
+    // Compares wall-clock throughput, runs with the load tests only
+    @Test
+    @Tag("load")
+    void whenPostBatch_thenHigherThroughputThanSinglePosts() throws Exception {
+        // Warm up both paths so the comparison is not dominated by class loading and JIT.
+        postSingle(scans("warmup-single", 200));
+        postBatch(scans("warmup-batch", 200));
+
+        long singleNanos = postSingle(scans("single", SCANS));
+        long batchNanos = postBatch(scans("batch", SCANS));
+
+        double singlePerSecond = SCANS / (singleNanos / 1e9);
+        double batchPerSecond = SCANS / (batchNanos / 1e9);
+
+        assertThat(scanRepository.count()).isEqualTo(2L * SCANS + 400);
+        assertThat(batchPerSecond).as("POST /scans/batch scans/s against %.0f scans/s of POST /scans", singlePerSecond)
+                .isGreaterThan(singlePerSecond);
+    }
+
+    private List<Scan> scans(String userName, int count) {
+        List<Scan> scans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            scans.add(new Scan(userName, "brand" + i, i % 10));
+        }
+        return scans;
+    }
+
+    private long postSingle(List<Scan> scans) throws Exception {
+        long start = System.nanoTime();
+        for (Scan scan : scans) {
+            mockMvc.perform(post("/scans")
+                            .content(mapper.writeValueAsString(scan))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long postBatch(List<Scan> scans) throws Exception {
+        long start = System.nanoTime();
+        mockMvc.perform(post("/scans/batch").param("ordered", "false")
+                        .content(mapper.writeValueAsString(scans))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        return System.nanoTime() - start;
+    }
+}
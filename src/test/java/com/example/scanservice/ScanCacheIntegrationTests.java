@@ -0,0 +1,114 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScanCacheIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenCachedScans_whenWrittenBehindTheService_thenServedFromCache() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "lode")).andExpect(jsonPath("$", hasSize(2)));
+
+        scanRepository.save(new Scan("Lode", "Audi", 4));
+
+        mockMvc.perform(get("/scans/user/{userName}", "lode")).andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void givenCachedScans_whenPostScan_thenUserAndBrandInvalidated() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "lode")).andExpect(jsonPath("$", hasSize(2)));
+        mockMvc.perform(get("/scans/{carBrand}", "audi")).andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/scans/{carBrand}", "traktor")).andExpect(jsonPath("$", hasSize(2)));
+
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Audi", 4)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/user/{userName}", "lode")).andExpect(jsonPath("$", hasSize(3)));
+        mockMvc.perform(get("/scans/{carBrand}", "audi")).andExpect(jsonPath("$", hasSize(1)));
+        // Unrelated brand stays cached.
+        scanRepository.save(new Scan("Anna", "Traktor", 5));
+        mockMvc.perform(get("/scans/{carBrand}", "traktor")).andExpect(jsonPath("$", hasSize(2)));
+    }
+
+    @Test
+    void givenCachedScan_whenPutScan_thenPairInvalidated() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}/car/{carBrand}", "lode", "tesla"))
+                .andExpect(jsonPath("$.scoreNumber", is(2)));
+
+        mockMvc.perform(put("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Tesla", 9)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/user/{userName}/car/{carBrand}", "lode", "tesla"))
+                .andExpect(jsonPath("$.scoreNumber", is(9)));
+    }
+
+    @Test
+    void givenCachedScans_whenDeleteScansByCarBrand_thenUsersInvalidated() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "johnny")).andExpect(jsonPath("$", hasSize(1)));
+
+        mockMvc.perform(delete("/scans/{carBrand}", "traktor")).andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/user/{userName}", "johnny")).andExpect(jsonPath("$", hasSize(0)));
+    }
+
+    @Test
+    void givenCacheUse_thenStatisticsExposed() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "lode"));
+        mockMvc.perform(get("/scans/user/{userName}", "lode"));
+
+        mockMvc.perform(get("/actuator/metrics/cache.gets").param("tag", "cache:scansByUser", "result:hit"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].value").isNumber());
+        mockMvc.perform(get("/actuator/metrics/cache.evictions").param("tag", "cache:scansByUser"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/caches"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.cacheManagers.cacheManager.caches.scansByUser").exists());
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanChangeFeed;
+import com.example.scanservice.service.ScanChangeFeed.Change;
+import com.mongodb.MongoException;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = "scans.stream.buffer-size=4")
+@AutoConfigureMockMvc
+class ScanChangeFeedTests {
+
+    private static final int BUFFER_SIZE = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanChangeFeed scanChangeFeed;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    // Keeps every scan it is sent, without a client behind it.
+    private static class RecordingEmitter extends SseEmitter {
+        final List<Scan> scans = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            builder.build().stream()
+                    .filter(part -> part.getData() instanceof Scan)
+                    .forEach(part -> scans.add((Scan) part.getData()));
+        }
+    }
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenStreamForUserName_whenScansChange_thenSendOnlyScansOfThatUser() throws Exception {
+        MvcResult result = mockMvc.perform(get("/scans/stream").param("userName", "Lode").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        scanChangeFeed.publish(new Change("insert", new Scan("Johnny", "Tesla", 1)));
+        scanChangeFeed.publish(new Change("update", new Scan("Lode", "Audi", 4)));
+
+        awaitUntil(() -> content(result).contains("\"carBrand\":\"audi\""));
+        assertThat(content(result))
+                .contains("\"userName\":\"lode\"", "\"carBrand\":\"audi\"")
+                .contains("event:update")
+                .doesNotContain("johnny", "event:insert");
+    }
+
+    @Test
+    void givenSlowSubscriber_whenItsBufferIsFull_thenDropItWithoutDelayingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SseEmitter slow = new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        RecordingEmitter fast = new RecordingEmitter();
+        int subscribers = scanChangeFeed.getSubscriberCount();
+        scanChangeFeed.subscribe(slow, null, "audi");
+        scanChangeFeed.subscribe(fast, null, "audi");
+
+        int events = BUFFER_SIZE * 3;
+        for (int i = 0; i < events; i++) {
+            scanChangeFeed.publish(new Change("insert", new Scan("User" + i, "Audi", i % 6)));
+            int sent = i + 1;
+            awaitUntil(() -> fast.scans.size() == sent);
+        }
+        release.countDown();
+
+        assertThat(fast.scans).hasSize(events);
+        assertThat(fast.scans.get(events - 1).getUserName()).isEqualTo("user" + (events - 1));
+        assertThat(scanChangeFeed.getSubscriberCount()).isEqualTo(subscribers + 1);
+    }
+
+    @Test
+    void givenChangeStreamSupported_whenScanSaved_thenSendIt() throws Exception {
+        try {
+            mongoTemplate.getCollection("scans").watch().cursor().close();
+        } catch (MongoException e) {
+            assumeTrue(false, "change streams are not supported by this MongoDB server: " + e.getMessage());
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+        scanChangeFeed.subscribe(emitter, "lode", null);
+
+        // The watcher may still be opening its own stream, so keep writing until one arrives
+        AtomicInteger saved = new AtomicInteger();
+        awaitUntil(() -> {
+            scanRepository.save(new Scan("Lode", "Tesla" + saved.incrementAndGet(), 3));
+            return !emitter.scans.isEmpty();
+        });
+        assertThat(emitter.scans.get(0).getCarBrand()).startsWith("tesla");
+    }
+
+    @Test
+    void givenStandaloneServer_whenStarted_thenStopWatching() throws Exception {
+        Document isMaster = mongoTemplate.getDb().runCommand(new Document("isMaster", 1));
+        assumeTrue(!isMaster.containsKey("setName"), "MongoDB runs as replica set " + isMaster.get("setName"));
+
+        awaitUntil(() -> !scanChangeFeed.isWatching());
+        assertThat(scanChangeFeed.isWatching()).isFalse();
+    }
+
+    @Test
+    void givenNoWebApplication_whenStarted_thenDoNotWatch() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ScanServiceApplication.class)
+                .run("--spring.main.web-application-type=none")) {
+            ScanChangeFeed feed = context.getBean(ScanChangeFeed.class);
+            assertThat(feed.isRunning()).isFalse();
+            assertThat(feed.isWatching()).isFalse();
+        }
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+}
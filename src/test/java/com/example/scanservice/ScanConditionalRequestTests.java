@@ -0,0 +1,178 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.repository.ScanVersionRepository;
+import com.example.scanservice.service.ScanVersionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScanConditionalRequestTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanVersionRepository scanVersionRepository;
+
+    @Autowired
+    private ScanVersionService scanVersionService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        scanRepository.deleteAll();
+        scanVersionRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+        scanVersionRepository.deleteAll();
+    }
+
+    @Test
+    void givenUnchangedScans_whenGetScansByUserNameWithIfNoneMatch_thenStatusNotModified() throws Exception {
+        String etag = mockMvc.perform(get("/scans/user/{userName}", "lode"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/scans/user/{userName}", "lode").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void givenScanAdded_whenGetScansByUserNameWithIfNoneMatch_thenReturnScansWithNewEtag() throws Exception {
+        String etag = mockMvc.perform(get("/scans/user/{userName}", "lode"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Audi", 4)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        String newEtag = mockMvc.perform(get("/scans/user/{userName}", "lode").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertThat(newEtag).isNotEqualTo(etag);
+    }
+
+    @Test
+    void givenScanDeleted_whenGetScansByCarBrandWithIfNoneMatch_thenReturnScans() throws Exception {
+        String etag = mockMvc.perform(get("/scans/{carBrand}", "traktor"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(delete("/scans/user/{userName}", "johnny"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/{carBrand}", "traktor").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        // Other brands keep their tag
+        mockMvc.perform(get("/scans/{carBrand}", "tesla"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void givenListCachedAfterItsEviction_whenTagBumped_thenReloadUnderNewTag() throws Exception {
+        String etag = mockMvc.perform(get("/scans/user/{userName}", "lode"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // A write that lands after the list was read but whose eviction ran before the list was cached
+        Scan added = scanRepository.save(new Scan("Lode", "Audi", 4));
+        scanVersionService.changed(added);
+
+        mockMvc.perform(get("/scans/user/{userName}", "lode"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, not(etag)))
+                .andExpect(jsonPath("$", hasSize(3)));
+    }
+
+    @Test
+    void givenWriteFailed_whenGetScansByUserNameWithIfNoneMatch_thenReturnScansWithNewEtag() throws Exception {
+        String etag = mockMvc.perform(get("/scans/user/{userName}", "lode"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The unique index rejects the second Lode/Traktor scan; a failed write is reported changed like any other
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Traktor", 7)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(get("/scans/user/{userName}", "lode").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void givenScan_whenGetScanWithIfNoneMatch_thenStatusNotModified() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}/car/{carBrand}", "lode", "traktor"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""));
+
+        mockMvc.perform(get("/scans/user/{userName}/car/{carBrand}", "lode", "traktor").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void givenCurrentEtag_whenPutScanWithIfMatch_thenUpdateOnlyOnce() throws Exception {
+        mockMvc.perform(put("/scans")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Traktor", 7)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.scoreNumber", is(7)));
+
+        mockMvc.perform(put("/scans")
+                        .header(HttpHeaders.IF_MATCH, "\"0\"")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Traktor", 8)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("lode", "traktor").getScoreNumber()).isEqualTo(7);
+    }
+
+    @Test
+    void givenNoScan_whenPutScanWithIfMatchAny_thenStatusPreconditionFailed() throws Exception {
+        mockMvc.perform(put("/scans?upsert=true")
+                        .header(HttpHeaders.IF_MATCH, "*")
+                        .content(mapper.writeValueAsString(new Scan("Anna", "Volvo", 3)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("anna", "volvo")).isNull();
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.scanservice;
+
+import com.example.scanservice.controller.ScanColumnarHttpMessageConverter;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+class ScanContentNegotiationTests {
+
+    private static final String CBOR = "application/cbor";
+    private static final String SMILE = "application/x-jackson-smile";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenAcceptCbor_whenGetScansByUserName_thenReturnCborScans() throws Exception {
+        byte[] body = mockMvc.perform(get("/scans/user/{userName}", "lode").accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode scans = new CBORMapper().readTree(body);
+        assertThat(scans).hasSize(2);
+        assertThat(scans.get(0).get("carBrand").asText()).isEqualTo("traktor");
+    }
+
+    @Test
+    void givenAcceptSmile_whenGetScansByUserName_thenReturnSmileScans() throws Exception {
+        byte[] body = mockMvc.perform(get("/scans/user/{userName}", "lode").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode scans = new SmileMapper().readTree(body);
+        assertThat(scans).hasSize(2);
+        assertThat(scans.get(1).get("scoreNumber").asInt()).isEqualTo(2);
+    }
+
+    @Test
+    void givenAcceptColumnar_whenGetScans_thenReturnArrayPerField() throws Exception {
+        mockMvc.perform(get("/scans").accept(ScanColumnarHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ScanColumnarHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(jsonPath("$.userName", contains("lode", "lode")))
+                .andExpect(jsonPath("$.carBrand", contains("traktor", "tesla")))
+                .andExpect(jsonPath("$.scoreNumber", contains(1, 2)));
+    }
+
+    @Test
+    void givenLargeList_whenGetScansByCarBrandWithAcceptEncodingGzip_thenReturnCompressedScans() throws Exception {
+        scanRepository.bulkInsert(IntStream.range(0, 200).mapToObj(i -> new Scan("User" + i, "Audi", i % 6)).toList(), false);
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/scans/audi"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).hasValue("gzip");
+        assertThat(response.headers().firstValue(HttpHeaders.ETAG)).isPresent();
+        try (GZIPInputStream json = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            List<?> scans = new ObjectMapper().readValue(json, List.class);
+            assertThat(scans).hasSize(200);
+        }
+    }
+
+    @Test
+    void givenSmallList_whenGetScansByUserNameWithAcceptEncodingGzip_thenReturnUncompressedScans() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/scans/user/lode"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build(), HttpResponse.BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING)).isEmpty();
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.scanservice;
 
+import com.example.scanservice.controller.ScanController;
 import com.example.scanservice.model.Scan;
 import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanStatsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.mockito.BDDMockito.given;
@@ -29,6 +37,12 @@ class ScanControllerIntegrationTests {
     @Autowired
     private ScanRepository scanRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private ScanStatsService scanStatsService;
+
     private Scan scanUser1Car1 = new Scan("Lode", "Traktor", 1);
     private Scan scanUser1Car2 = new Scan("Lode", "Tesla", 2);
     private Scan scanUser2Car1 = new Scan("Johnny", "Traktor", 3);
@@ -37,11 +51,13 @@ class ScanControllerIntegrationTests {
 
     @BeforeEach
     public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
         scanRepository.deleteAll();
         scanRepository.save(scanUser1Car1);
         scanRepository.save(scanUser1Car2);
         scanRepository.save(scanUser2Car1);
         scanRepository.save(scanToBeDeleted);
+        scanStatsService.rebuild();
     }
 
     @AfterEach
@@ -112,18 +128,212 @@ class ScanControllerIntegrationTests {
     }
 
 
+    @Test
+    void givenScans_whenGetScansPaged_thenReturnPagesWithCursor() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/scans").param("limit", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(ScanController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].userName",is("lode")))
+                .andExpect(jsonPath("$[0].carBrand",is("traktor")))
+                .andExpect(jsonPath("$[2].userName",is("johnny")))
+                .andReturn();
+
+        String cursor = firstPage.getResponse().getHeader(ScanController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/scans").param("limit", "3").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(ScanController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userName",is("michiel")))
+                .andExpect(jsonPath("$[0].carBrand",is("tesla")));
+    }
+
+    @Test
+    void givenScans_whenGetScansByUserNamePaged_thenReturnPagesWithCursor() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/scans/user/{userName}","lode").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].carBrand",is("traktor")))
+                .andReturn();
+
+        String cursor = firstPage.getResponse().getHeader(ScanController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/scans/user/{userName}","lode").param("limit", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].carBrand",is("tesla")));
+    }
+
+    @Test
+    void givenScans_whenGetScansByCarBrandPaged_thenReturnPagesWithCursor() throws Exception {
+        MvcResult firstPage = mockMvc.perform(get("/scans/{carBrand}","traktor").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userName",is("lode")))
+                .andReturn();
+
+        String cursor = firstPage.getResponse().getHeader(ScanController.NEXT_CURSOR_HEADER);
+
+        mockMvc.perform(get("/scans/{carBrand}","traktor").param("limit", "1").param("after", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].userName",is("johnny")));
+    }
+
+    @Test
+    void whenGetScansWithInvalidCursor_thenStatusBadRequest() throws Exception {
+        mockMvc.perform(get("/scans").param("limit", "3").param("after", "not-an-id"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenScans_whenStreamScans_thenReturnNdjsonScans() throws Exception {
+        MvcResult result = mockMvc.perform(get("/scans").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(mapper.readValue(lines[0], Scan.class).getCarBrand()).isEqualTo("traktor");
+        assertThat(mapper.readValue(lines[3], Scan.class).getUserName()).isEqualTo("michiel");
+    }
+
+    @Test
+    void givenScans_whenStreamScansByCarBrand_thenReturnNdjsonScans() throws Exception {
+        MvcResult result = mockMvc.perform(get("/scans/{carBrand}","tesla").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.split("\n")).hasSize(2);
+    }
+
+    @Test
+    void givenScans_whenGetTopScansByCarBrand_thenReturnHighestScoresFirst() throws Exception {
+        scanRepository.save(new Scan("Jan", "Tesla", 3));
+
+        mockMvc.perform(get("/scans/{carBrand}/top","Tesla").param("n", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].userName",is("michiel")))
+                .andExpect(jsonPath("$[0].scoreNumber",is(4)))
+                .andExpect(jsonPath("$[1].userName",is("jan")))
+                .andExpect(jsonPath("$[1].scoreNumber",is(3)));
+    }
+
+    @Test
+    void whenGetTopScansWithInvalidN_thenStatusBadRequest() throws Exception {
+        mockMvc.perform(get("/scans/{carBrand}/top","tesla").param("n", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenScans_whenGetBrandStats_thenReturnStatsPerBrand() throws Exception {
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].carBrand",is("tesla")))
+                .andExpect(jsonPath("$[0].count",is(2)))
+                .andExpect(jsonPath("$[0].average",is(3.0)))
+                .andExpect(jsonPath("$[0].min",is(2)))
+                .andExpect(jsonPath("$[0].max",is(4)))
+                .andExpect(jsonPath("$[1].carBrand",is("traktor")))
+                .andExpect(jsonPath("$[1].count",is(2)))
+                .andExpect(jsonPath("$[1].average",is(2.0)))
+                .andExpect(jsonPath("$[1].min",is(1)))
+                .andExpect(jsonPath("$[1].max",is(3)));
+    }
+
     @Test
     void whenPostScan_thenReturnJsonScan() throws Exception{
+        Scan newScan = new Scan("Johnny", "Tesla", 1);
+
         mockMvc.perform(post("/scans")
-                        .content(mapper.writeValueAsString(scanUser1Car1))
+                        .content(mapper.writeValueAsString(newScan))
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$.userName",is("lode")))
-                .andExpect(jsonPath("$.carBrand",is("traktor")))
+                .andExpect(jsonPath("$.userName",is("johnny")))
+                .andExpect(jsonPath("$.carBrand",is("tesla")))
                 .andExpect(jsonPath("$.scoreNumber",is(1)));
     }
 
+    @Test
+    void whenPostIncompleteScan_thenStatusBadRequest() throws Exception{
+        mockMvc.perform(post("/scans")
+                        .content("{\"userName\":\"johnny\",\"scoreNumber\":1}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenScan_whenPostSameUserNameAndCarBrand_thenStatusConflict() throws Exception{
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(scanUser1Car1))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void givenScan_whenPostBatchUnordered_thenInsertAllButDuplicate() throws Exception{
+        List<Scan> scans = List.of(new Scan("Johnny", "Tesla", 5), scanUser1Car1, new Scan("Johnny", "Audi", 2));
+
+        mockMvc.perform(post("/scans/batch").param("ordered", "false")
+                        .content(mapper.writeValueAsString(scans))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status",is("CREATED")))
+                .andExpect(jsonPath("$[1].status",is("DUPLICATE")))
+                .andExpect(jsonPath("$[2].status",is("CREATED")));
+
+        assertThat(scanRepository.findScansByUserName("johnny")).hasSize(3);
+    }
+
+    @Test
+    void givenScan_whenPostBatchOrdered_thenStopAtDuplicate() throws Exception{
+        List<Scan> scans = List.of(new Scan("Johnny", "Tesla", 5), scanUser1Car1, new Scan("Johnny", "Audi", 2));
+
+        mockMvc.perform(post("/scans/batch")
+                        .content(mapper.writeValueAsString(scans))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status",is("CREATED")))
+                .andExpect(jsonPath("$[1].status",is("DUPLICATE")))
+                .andExpect(jsonPath("$[2].status",is("SKIPPED")));
+
+        assertThat(scanRepository.findScansByUserName("johnny")).hasSize(2);
+    }
+
+    @Test
+    void whenPostBatchNdjson_thenInsertValidScans() throws Exception{
+        String body = "{\"userName\":\"Anna\",\"carBrand\":\"Volvo\",\"scoreNumber\":4}\n"
+                + "{\"userName\":\"Anna\",\"scoreNumber\":4}\n"
+                + "{\"userName\":\"Anna\",\"carBrand\":\"Audi\",\"scoreNumber\":1}\n";
+
+        mockMvc.perform(post("/scans/batch").param("ordered", "false")
+                        .content(body)
+                        .contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].status",is("CREATED")))
+                .andExpect(jsonPath("$[1].status",is("INVALID")))
+                .andExpect(jsonPath("$[2].index",is(2)))
+                .andExpect(jsonPath("$[2].status",is("CREATED")));
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("anna", "audi").getScoreNumber()).isEqualTo(1);
+    }
+
     @Test
     void givenScan_whenPutScan_thenReturnJsonScan() throws Exception{
         Scan updatedScan = new Scan("Lode","Traktor",2);
@@ -138,11 +348,82 @@ class ScanControllerIntegrationTests {
                 .andExpect(jsonPath("$.scoreNumber",is(2)));
     }
 
+    @Test
+    void givenNoScan_whenPutScan_thenStatusNotFound() throws Exception{
+        mockMvc.perform(put("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Michiel", "Volvo", 3)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("michiel", "volvo")).isNull();
+    }
+
+    @Test
+    void givenNoScan_whenPutScanWithUpsert_thenReturnJsonScan() throws Exception{
+        mockMvc.perform(put("/scans").param("upsert", "true")
+                        .content(mapper.writeValueAsString(new Scan("Michiel", "Volvo", 3)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName",is("michiel")))
+                .andExpect(jsonPath("$.carBrand",is("volvo")))
+                .andExpect(jsonPath("$.scoreNumber",is(3)));
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("michiel", "volvo").getScoreNumber()).isEqualTo(3);
+    }
+
+    @Test
+    void givenNoScan_whenConcurrentUpserts_thenSingleScanWithOneOfTheScores() throws Exception{
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Scan>> updates = new ArrayList<>();
+        for (int score = 0; score < 50; score++) {
+            int scoreNumber = score;
+            updates.add(executor.submit(() -> scanRepository.getAndSetScoreNumber("anna", "volvo", scoreNumber, true)));
+        }
+        // Only the upsert that inserted the scan finds no previous one
+        int inserted = 0;
+        for (Future<Scan> update : updates) {
+            Scan previous = update.get();
+            if (previous == null) {
+                inserted++;
+            } else {
+                assertThat(previous.getUserName()).isEqualTo("anna");
+            }
+        }
+        assertThat(inserted).isEqualTo(1);
+        executor.shutdown();
+
+        assertThat(scanRepository.findScansByUserName("anna")).hasSize(1);
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("anna", "volvo").getScoreNumber()).isBetween(0, 49);
+    }
+
     @Test
     void givenScan_whenDeleteScan_thenStatusOk() throws Exception{
         mockMvc.perform(delete("/scans/user/{userName}/car/{carBrand}","michiel","tesla")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount",is(1)));
+
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("michiel", "tesla")).isNull();
+    }
+
+    @Test
+    void givenScans_whenDeleteScansByUserName_thenDeleteAllScansOfUser() throws Exception{
+        mockMvc.perform(delete("/scans/user/{userName}","Lode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount",is(2)));
+
+        assertThat(scanRepository.findScansByUserName("lode")).isEmpty();
+        assertThat(scanRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void givenScans_whenDeleteScansByCarBrand_thenDeleteAllScansOfBrand() throws Exception{
+        mockMvc.perform(delete("/scans/{carBrand}","traktor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount",is(2)));
+
+        assertThat(scanRepository.findScansByCarBrand("traktor")).isEmpty();
+        assertThat(scanRepository.count()).isEqualTo(2);
     }
 
     @Test
@@ -3,16 +3,22 @@ package com.example.scanservice;
 import com.example.scanservice.model.Scan;
 import com.example.scanservice.repository.ScanRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
@@ -27,11 +33,19 @@ class ScanControllerUnitTests {
     @Autowired
     private MockMvc mockMvc;
 
-    @MockBean
+    @MockitoBean
     private ScanRepository scanRepository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private ObjectMapper mapper = new ObjectMapper();
 
+    @BeforeEach
+    public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
     @Test
     void givenScan_whenGetScansByUserName_thenReturnJsonScans() throws Exception {
         Scan scanUser1Car1 = new Scan("Lode","Audi",5);
@@ -78,6 +92,18 @@ class ScanControllerUnitTests {
                 .andExpect(jsonPath("$[1].scoreNumber",is(3)));
     }
 
+    @Test
+    void givenScans_whenGetTopScansWithLargeN_thenLimitIsCapped() throws Exception {
+        Scan scanUser1Car1 = new Scan("Lode","Tesla",5);
+
+        given(scanRepository.findScansByCarBrandOrderByScoreNumberDescIdAsc("tesla", Limit.of(1000))).willReturn(List.of(scanUser1Car1));
+
+        mockMvc.perform(get("/scans/{carBrand}/top","tesla").param("n", "100000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].scoreNumber",is(5)));
+    }
+
     @Test
     void givenScan_whenGetScanByUserNameAndCarBrand_thenReturnJsonScan() throws Exception {
         Scan scanUser1Car1 = new Scan("Lode","Tesla",3);
@@ -101,7 +127,7 @@ class ScanControllerUnitTests {
         scanList.add(scanUser1Car1);
         scanList.add(scanUser1Car2);
 
-        given(scanRepository.findAll()).willReturn(scanList);
+        given(scanRepository.findAll(Sort.by("id"))).willReturn(scanList);
 
         mockMvc.perform(get("/scans"))
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
@@ -116,6 +142,24 @@ class ScanControllerUnitTests {
     }
 
 
+    @Test
+    void givenScan_whenStreamScansByUserName_thenReturnNdjsonScans() throws Exception {
+        Scan scanUser1Car1 = new Scan("Lode","Audi",5);
+        Scan scanUser1Car2 = new Scan("Lode","Tesla",3);
+
+        given(scanRepository.streamScansByUserName("lode")).willReturn(Stream.of(scanUser1Car1, scanUser1Car2));
+
+        MvcResult result = mockMvc.perform(get("/scans/user/{userName}","Lode").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"userName\":\"lode\",\"carBrand\":\"audi\",\"scoreNumber\":5}\n"
+                        + "{\"userName\":\"lode\",\"carBrand\":\"tesla\",\"scoreNumber\":3}\n"));
+    }
+
 
     @Test
     void whenPostScan_thenReturnJsonScan() throws Exception{
@@ -133,9 +177,9 @@ class ScanControllerUnitTests {
 
     @Test
     void givenScan_whenPutScan_thenReturnJsonScan() throws Exception{
-        Scan ScanUser3Car1 = new Scan("Michael","Audi",4);
+        Scan ScanUser3Car1 = new Scan("Michael","Audi",5);
 
-        given(scanRepository.findScanByUserNameAndAndCarBrand("michael","audi")).willReturn(ScanUser3Car1);
+        given(scanRepository.getAndSetScoreNumber("michael","audi",5,false)).willReturn(ScanUser3Car1);
 
         Scan updatedReview = new Scan("Michael","Audi",5);
 
@@ -150,34 +194,52 @@ class ScanControllerUnitTests {
     }
 
     @Test
-    void givenScan_whenDeleteScan_thenStatusOk() throws Exception{
-        Scan ScanUser3Car1 = new Scan("Michael","Audi",4);
+    void givenNoScan_whenPutScan_thenStatusNotFound() throws Exception{
+        given(scanRepository.getAndSetScoreNumber("michael","audi",5,false)).willReturn(null);
+
+        mockMvc.perform(put("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Michael","Audi",5)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
 
-        given(scanRepository.findScanByUserNameAndAndCarBrand("michael","audi")).willReturn(ScanUser3Car1);
+    @Test
+    void givenScan_whenDeleteScan_thenStatusOk() throws Exception{
+        given(scanRepository.removeScanByUserNameAndCarBrand("michael","audi")).willReturn(new Scan("Michael","Audi",5));
 
         mockMvc.perform(delete("/scans/user/{userName}/car/{carBrand}","michael","audi")
                         .contentType(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount",is(1)));
     }
 
     @Test
     void givenNoScan_whenDeleteScan_thenStatusNotFound() throws Exception{
-        given(scanRepository.findScanByUserNameAndAndCarBrand("lode","volvo")).willReturn(null);
+        given(scanRepository.removeScanByUserNameAndCarBrand("lode","volvo")).willReturn(null);
 
         mockMvc.perform(delete("/scans/user/{userName}/car/{carBrand}","lode","volvo")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void givenScans_whenDeleteScansByUserName_thenReturnDeletedCount() throws Exception{
+        given(scanRepository.deleteScansByUserName("lode")).willReturn(3L);
+
+        mockMvc.perform(delete("/scans/user/{userName}","Lode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount",is(3)));
+    }
+
     // Extra test because of the DTO scan
     @Test
     void givenNewScanIsPut_thenReturnJsonScan() throws Exception{
         Scan newScan = new Scan();
         newScan.setUserName("Michael");
         newScan.setCarBrand("Audi");
-        newScan.setScoreNumber(4);
+        newScan.setScoreNumber(5);
 
-        given(scanRepository.findScanByUserNameAndAndCarBrand("michael","audi")).willReturn(newScan);
+        given(scanRepository.getAndSetScoreNumber("michael","audi",5,false)).willReturn(newScan);
 
         Scan updatedReview = new Scan("Michael","Audi",5);
 
@@ -0,0 +1,161 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.BrandStats;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScanDictionaryEntry;
+import com.example.scanservice.repository.ScanDictionary;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static com.example.scanservice.repository.ScanDictionary.Field.CAR_BRAND;
+import static com.example.scanservice.repository.ScanDictionary.Field.USER_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "scans.storage.dictionary.enabled=true")
+@AutoConfigureMockMvc
+class ScanDictionaryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanDictionary scanDictionary;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenSavedScan_whenReadRawDocument_thenStoreCodesInsteadOfStrings() {
+        Document stored = mongoTemplate.getCollection("scans").find(new Document("scoreNumber", 2)).first();
+
+        assertThat(stored.get("userName")).isEqualTo(scanDictionary.encode(USER_NAME, "lode"));
+        assertThat(stored.get("carBrand")).isEqualTo(scanDictionary.encode(CAR_BRAND, "tesla"));
+        assertThat(scanDictionary.decode(CAR_BRAND, stored.getInteger("carBrand"))).isEqualTo("tesla");
+    }
+
+    @Test
+    void givenEncodedScans_whenGetScansByUserNameAndCarBrand_thenReturnStrings() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "LODE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].userName", is("lode")))
+                .andExpect(jsonPath("$[0].carBrand", is("traktor")));
+
+        mockMvc.perform(get("/scans/{carBrand}", "traktor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[1].userName", is("johnny")));
+    }
+
+    @Test
+    void givenNewPair_whenPutScan_thenUpsertItWithNewCodes() throws Exception {
+        Scan scan = new Scan("Marie", "Volvo", 4);
+
+        mockMvc.perform(put("/scans").param("upsert", "true")
+                        .content(mapper.writeValueAsString(scan))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        Scan stored = scanRepository.findScanByUserNameAndAndCarBrand("marie", "volvo");
+        assertThat(stored.getScoreNumber()).isEqualTo(4);
+        Document raw = mongoTemplate.getCollection("scans").find(new Document("scoreNumber", 4)).first();
+        assertThat(raw.get("userName")).isInstanceOf(Integer.class);
+    }
+
+    @Test
+    void givenUnknownUser_whenGetScansByUserName_thenReturnNothingAndKeepDictionary() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}", "nobody"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        assertThat(mongoTemplate.exists(query(where("field").is("userName").and("value").is("nobody")), ScanDictionaryEntry.class))
+                .isFalse();
+    }
+
+    @Test
+    void givenEncodedScans_whenFindBrandStats_thenGroupByBrandName() {
+        List<BrandStats> stats = scanRepository.findBrandStats();
+
+        assertThat(stats).extracting(BrandStats::getCarBrand).containsExactly("tesla", "traktor");
+        assertThat(stats.get(1).getCount()).isEqualTo(2);
+    }
+
+    @Test
+    void givenDeleteScansByCarBrand_whenDeleted_thenRemoveOnlyThatBrand() throws Exception {
+        mockMvc.perform(delete("/scans/{carBrand}", "Traktor"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount", is(2)));
+
+        assertThat(scanRepository.findAll()).extracting(Scan::getCarBrand).containsExactly("tesla");
+    }
+
+    @Test
+    void givenUnknownUser_whenFoundTwice_thenAnswerSecondLookupFromMemory() {
+        assertThat(scanDictionary.find(USER_NAME, "latecomer")).isNegative();
+        // Added behind this instance's back, the miss is remembered until scans.storage.dictionary.miss-ttl
+        mongoTemplate.insert(new ScanDictionaryEntry(USER_NAME.getFieldName(), "latecomer", 1_000));
+
+        assertThat(scanDictionary.find(USER_NAME, "latecomer")).isNegative();
+        mongoTemplate.remove(query(where("value").is("latecomer")), ScanDictionaryEntry.class);
+    }
+
+    @Test
+    void givenReactiveProfile_whenDictionaryEnabled_thenRefuseToStart() {
+        assertThatThrownBy(() -> new SpringApplicationBuilder(ScanServiceApplication.class)
+                .profiles("reactive")
+                .run("--server.port=0", "--scans.storage.dictionary.enabled=true"))
+                .hasRootCauseMessage("scans.storage.dictionary.enabled=true is not supported with the reactive profile, "
+                        + "the dictionary would block the event loop");
+    }
+
+    @Test
+    void givenKnownUserInOtherCase_whenNormalize_thenReturnStoredInstance() {
+        String stored = scanDictionary.normalize(USER_NAME, "lode");
+
+        assertThat(scanDictionary.normalize(USER_NAME, "LoDe")).isSameAs(stored);
+        assertThat(scanDictionary.normalize(USER_NAME, "Someone")).isEqualTo("someone");
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanExporter;
+import com.example.scanservice.service.ScanImporter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScanExportTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanExporter scanExporter;
+
+    @Autowired
+    private ScanImporter scanImporter;
+
+    @TempDir
+    private Path directory;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void whenExportScans_thenGzipNdjsonOfAllScans() throws Exception {
+        MvcResult result = mockMvc.perform(get("/scans/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"scans.ndjson.gz\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(lines(new GZIPInputStream(new ByteArrayInputStream(body)))).hasSize(3);
+    }
+
+    @Test
+    void whenExportScansOfBrandWithZstd_thenOnlyScansOfBrand() throws Exception {
+        MvcResult result = mockMvc.perform(get("/scans/export").param("carBrand", "Traktor").param("compression", "zstd"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/zstd"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        List<String> lines = lines(new ZstdInputStream(new ByteArrayInputStream(body)));
+        assertThat(lines).hasSize(2);
+        assertThat(lines).allSatisfy(line -> assertThat(mapper.readValue(line, Scan.class).getCarBrand()).isEqualTo("traktor"));
+    }
+
+    @Test
+    void whenExportWithUnknownCompression_thenStatusBadRequest() throws Exception {
+        mockMvc.perform(get("/scans/export").param("compression", "rar"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void givenExportFile_whenImportIt_thenSameScans() throws Exception {
+        Path file = directory.resolve("scans.ndjson.gz");
+
+        long exported = scanExporter.export("lode", null, ScanExporter.Compression.of(file), file);
+        assertThat(exported).isEqualTo(2);
+
+        Path plain = directory.resolve("scans.ndjson");
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            Files.copy(in, plain);
+        }
+        scanRepository.deleteAll();
+        scanImporter.importFile(plain, ScanImporter.Format.NDJSON, directory.resolve("checkpoint"));
+
+        assertThat(scanRepository.findScansByUserName("lode")).extracting(Scan::getCarBrand).containsExactlyInAnyOrder("traktor", "tesla");
+        assertThat(Files.exists(directory.resolve("scans.ndjson.gz.tmp"))).isFalse();
+    }
+
+    @Test
+    void givenExportFileFails_whenExport_thenLeaveNoTemporaryFile() throws Exception {
+        // A non-empty directory in the way of the target makes the final move fail
+        Path file = directory.resolve("scans.ndjson");
+        Files.createDirectories(file.resolve("taken"));
+
+        assertThatThrownBy(() -> scanExporter.export(null, null, ScanExporter.Compression.NONE, file))
+                .isInstanceOf(IOException.class);
+        assertThat(Files.exists(directory.resolve("scans.ndjson.tmp"))).isFalse();
+    }
+
+    private static List<String> lines(InputStream in) throws IOException {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.model.ScanVersion;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.repository.ScanVersionRepository;
+import com.example.scanservice.service.ScanImporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "scans.import.batch-size=2")
+class ScanImporterTests {
+
+    @Autowired
+    private ScanImporter scanImporter;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanVersionRepository scanVersionRepository;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenNdjsonFile_whenImport_thenValidRecordsNormalizedAndWritten() throws Exception {
+        Path file = Files.writeString(directory.resolve("scans.ndjson"), """
+                {"userName":"Lode","carBrand":"Traktor","scoreNumber":1}
+                {"userName":"Lode","carBrand":"Tesla","scoreNumber":2}
+                not json
+                {"userName":"Johnny","carBrand":"Traktor"}
+
+                {"userName":"Johnny","carBrand":"Traktor","scoreNumber":3}
+                """);
+
+        ScanImporter.Result result = scanImporter.importFile(file, ScanImporter.Format.NDJSON, directory.resolve("checkpoint"));
+
+        assertThat(result.rows()).isEqualTo(5);
+        assertThat(result.written()).isEqualTo(3);
+        assertThat(result.invalid()).isEqualTo(2);
+        assertThat(scanRepository.findScansByUserName("lode")).extracting(Scan::getCarBrand).containsExactlyInAnyOrder("traktor", "tesla");
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("johnny", "traktor").getScoreNumber()).isEqualTo(3);
+        assertThat(directory.resolve("checkpoint")).doesNotExist();
+    }
+
+    @Test
+    void givenCsvFileWithHeader_whenImport_thenRecordsWritten() throws Exception {
+        Path file = Files.writeString(directory.resolve("scans.csv"),
+                "userName,carBrand,scoreNumber\r\nLode,Audi,5\r\n\"Michiel\",\"Tesla\",4\r\nJohnny,Audi,x\r\n");
+
+        ScanImporter.Result result = scanImporter.importFile(file, ScanImporter.Format.of(file), directory.resolve("checkpoint"));
+
+        assertThat(result.written()).isEqualTo(2);
+        assertThat(result.invalid()).isEqualTo(1);
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("michiel", "tesla").getScoreNumber()).isEqualTo(4);
+    }
+
+    @Test
+    void givenCsvFileWithQuotedFields_whenImport_thenCommasAndQuotesKeptInFields() throws Exception {
+        Path file = Files.writeString(directory.resolve("scans.csv"),
+                "\"Lode, Jr.\",Audi,5\n\"Michiel \"\"M\"\"\" , \"Tesla\",4\n\"Johnny,Audi,3\nAnna,Au\"di,2\n");
+
+        ScanImporter.Result result = scanImporter.importFile(file, ScanImporter.Format.of(file), directory.resolve("checkpoint"));
+
+        assertThat(result.written()).isEqualTo(2);
+        assertThat(result.invalid()).isEqualTo(2);
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("lode, jr.", "audi").getScoreNumber()).isEqualTo(5);
+        assertThat(scanRepository.findScanByUserNameAndAndCarBrand("michiel \"m\"", "tesla").getScoreNumber()).isEqualTo(4);
+    }
+
+    @Test
+    void givenCheckpoint_whenImport_thenResumeBehindIt() throws Exception {
+        String done = "{\"userName\":\"Lode\",\"carBrand\":\"Traktor\",\"scoreNumber\":1}\n";
+        Path file = Files.writeString(directory.resolve("scans.ndjson"),
+                done + "{\"userName\":\"Lode\",\"carBrand\":\"Tesla\",\"scoreNumber\":2}\n");
+        Path checkpoint = Files.writeString(directory.resolve("checkpoint"),
+                Integer.toString(done.getBytes(StandardCharsets.UTF_8).length));
+
+        ScanImporter.Result result = scanImporter.importFile(file, ScanImporter.Format.NDJSON, checkpoint);
+
+        assertThat(result.rows()).isEqualTo(1);
+        assertThat(scanRepository.findScansByUserName("lode")).extracting(Scan::getCarBrand).containsExactly("tesla");
+    }
+
+    @Test
+    void givenImportedFile_whenImportAgain_thenUpsertsChangeNothing() throws Exception {
+        Path file = Files.writeString(directory.resolve("scans.ndjson"), """
+                {"userName":"Lode","carBrand":"Traktor","scoreNumber":1}
+                {"userName":"Lode","carBrand":"Tesla","scoreNumber":2}
+                {"userName":"Johnny","carBrand":"Traktor","scoreNumber":3}
+                """);
+
+        long allVersion = allVersion();
+        scanImporter.importFile(file, ScanImporter.Format.NDJSON, directory.resolve("checkpoint"));
+        ScanImporter.Result again = scanImporter.importFile(file, ScanImporter.Format.NDJSON, directory.resolve("checkpoint"));
+
+        assertThat(again.resumedFrom()).isZero();
+        assertThat(again.rows()).isEqualTo(3);
+        assertThat(scanRepository.count()).isEqualTo(3);
+        // Once per import, not once per batch
+        assertThat(allVersion()).isEqualTo(allVersion + 2);
+    }
+
+    private long allVersion() {
+        return scanVersionRepository.findById("all").map(ScanVersion::getVersion).orElse(0L);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanIngestQueue;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"scans.ingest.mode=queue", "scans.ingest.queue-capacity=2", "scans.ingest.batch-size=1",
+        "scans.ingest.retries=2", "scans.ingest.retry-backoff=PT0.01S"})
+@AutoConfigureMockMvc
+class ScanIngestQueueBackpressureTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanIngestQueue scanIngestQueue;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        // A test can stop the queue to drain it
+        if (!scanIngestQueue.isRunning()) {
+            scanIngestQueue.start();
+        }
+    }
+
+    @Test
+    void givenSlowWrites_whenQueueFull_thenRejectAndDrainAcceptedOnStop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        given(scanRepository.bulkInsert(anyList(), anyBoolean())).willAnswer(invocation -> {
+            release.await();
+            return List.of();
+        });
+
+        // The writer takes the first scan and blocks on it, the next two fill the queue.
+        postScan("first").andExpect(status().isAccepted());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("scans.ingest.queue.depth").gauge().value() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        postScan("second").andExpect(status().isAccepted());
+        postScan("third").andExpect(status().isAccepted());
+        postScan("fourth").andExpect(status().isTooManyRequests());
+
+        release.countDown();
+        scanIngestQueue.stop();
+
+        verify(scanRepository, times(3)).bulkInsert(anyList(), anyBoolean());
+        assertThat(meterRegistry.get("scans.ingest.queue.depth").gauge().value()).isZero();
+        assertThat(meterRegistry.get("scans.ingest.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void givenTransientWriteFailure_whenFlushed_thenRetryInsteadOfDropping() throws Exception {
+        double failedBefore = meterRegistry.get("scans.ingest.failed").counter().count();
+        double retriedBefore = meterRegistry.get("scans.ingest.retried").counter().count();
+        AtomicInteger attempts = new AtomicInteger();
+        given(scanRepository.bulkInsert(anyList(), anyBoolean())).willAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new DataAccessResourceFailureException("Timed out waiting for a server");
+            }
+            return List.of();
+        });
+
+        postScan("flaky").andExpect(status().isAccepted());
+        scanIngestQueue.stop();
+
+        verify(scanRepository, times(2)).bulkInsert(anyList(), anyBoolean());
+        assertThat(meterRegistry.get("scans.ingest.failed").counter().count()).isEqualTo(failedBefore);
+        assertThat(meterRegistry.get("scans.ingest.retried").counter().count()).isEqualTo(retriedBefore + 1);
+    }
+
+    @Test
+    void givenLastingWriteFailure_whenFlushed_thenCountFailedAfterRetries() throws Exception {
+        double failedBefore = meterRegistry.get("scans.ingest.failed").counter().count();
+        given(scanRepository.bulkInsert(anyList(), anyBoolean()))
+                .willThrow(new DataAccessResourceFailureException("Timed out waiting for a server"));
+
+        postScan("down").andExpect(status().isAccepted());
+        scanIngestQueue.stop();
+
+        verify(scanRepository, times(3)).bulkInsert(anyList(), anyBoolean());
+        assertThat(meterRegistry.get("scans.ingest.failed").counter().count()).isEqualTo(failedBefore + 1);
+    }
+
+    private ResultActions postScan(String userName) throws Exception {
+        return mockMvc.perform(post("/scans")
+                .content(mapper.writeValueAsString(new Scan(userName, "Tesla", 1)))
+                .contentType(MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = {"scans.ingest.mode=queue", "scans.ingest.max-wait=PT0.2S"})
+@AutoConfigureMockMvc
+class ScanIngestQueueIntegrationTests {
+
+    private static final int SCANS = 20;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoSpyBean
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void whenPostScans_thenAcceptedAndWrittenInGroupCommits() throws Exception {
+        double batchesBefore = meterRegistry.get("scans.ingest.batch.size").summary().count();
+
+        for (int i = 0; i < SCANS; i++) {
+            mockMvc.perform(post("/scans")
+                            .content(mapper.writeValueAsString(new Scan("User" + i, "Tesla", i)))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isAccepted())
+                    .andExpect(jsonPath("$.userName", is("user" + i)));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (scanRepository.count() < SCANS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(scanRepository.count()).isEqualTo(SCANS);
+        assertThat(meterRegistry.get("scans.ingest.batch.size").summary().count() - batchesBefore).isLessThan(SCANS);
+    }
+
+    @Test
+    void givenWriteLostAfterReachingServer_whenRetried_thenCountNothingFailed() throws Exception {
+        double failedBefore = meterRegistry.get("scans.ingest.failed").counter().count();
+        long flushesBefore = meterRegistry.get("scans.ingest.flush").timer().count();
+        // The repository is a proxy, the spy delegates to it through its default answer
+        Answer<?> realMethod = mockingDetails(scanRepository).getMockCreationSettings().getDefaultAnswer();
+        willAnswer(invocation -> {
+            realMethod.answer(invocation);
+            throw new DataAccessResourceFailureException("Connection reset");
+        }).willAnswer(realMethod).given(scanRepository).bulkInsert(anyList(), anyBoolean());
+
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Tesla", 1)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("scans.ingest.flush").timer().count() == flushesBefore && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(scanRepository.count()).isEqualTo(1);
+        assertThat(meterRegistry.get("scans.ingest.failed").counter().count()).isEqualTo(failedBefore);
+    }
+
+    @Test
+    void whenPostIncompleteScan_thenStatusBadRequest() throws Exception {
+        mockMvc.perform(post("/scans")
+                        .content("{\"userName\":\"lode\",\"carBrand\":\"tesla\"}")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+}
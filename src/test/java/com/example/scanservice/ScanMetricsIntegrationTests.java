@@ -0,0 +1,58 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class ScanMetricsIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenRequests_whenScrapePrometheus_thenEndpointMongoAndJvmHistogramsExposed() throws Exception {
+        mockMvc.perform(get("/scans/{carBrand}/top", "traktor")).andExpect(status().isOk());
+
+        String scrape = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(scrape)
+                .contains("http_server_requests_seconds_bucket{application=\"scan-service\"")
+                .contains("uri=\"/scans/{carBrand}/top\"")
+                .contains("mongodb_driver_commands_seconds_bucket")
+                .contains("command=\"find\"")
+                .contains("spring_data_repository_invocations_seconds_bucket")
+                .contains("method=\"findScansByCarBrandOrderByScoreNumberDescIdAsc\"")
+                .contains("mongodb_driver_pool_size")
+                .contains("jvm_gc_");
+    }
+}
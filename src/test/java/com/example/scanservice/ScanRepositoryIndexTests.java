@@ -0,0 +1,162 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.mongodb.MongoCommandException;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+@SpringBootTest
+class ScanRepositoryIndexTests {
+
+    // Server error code of an unknown command, what a server without explain answers
+    private static final int COMMAND_NOT_FOUND = 59;
+
+    // The find commands sent to MongoDB, as the repository built them
+    private static final Queue<BsonDocument> findCommands = new ConcurrentLinkedQueue<>();
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class FindCommandRecorder {
+
+        @Bean
+        MongoClientSettingsBuilderCustomizer findCommandRecorder() {
+            return settings -> settings.addCommandListener(new CommandListener() {
+                @Override
+                public void commandStarted(CommandStartedEvent event) {
+                    if (event.getCommandName().equals("find")) {
+                        findCommands.add(event.getCommand().clone());
+                    }
+                }
+            });
+        }
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenStartup_thenScanIndexesExist() {
+        List<String> indexNames = mongoTemplate.indexOps(Scan.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .toList();
+
+        assertThat(indexNames).contains("userName_carBrand", "userName_id", "carBrand_id", "carBrand_scoreNumber");
+    }
+
+    @Test
+    void givenStartup_thenUserNameAndCarBrandIndexIsUnique() {
+        IndexInfo index = mongoTemplate.indexOps(Scan.class).getIndexInfo().stream()
+                .filter(indexInfo -> indexInfo.getName().equals("userName_carBrand"))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(index.isUnique()).isTrue();
+    }
+
+    @Test
+    void whenFindScansByUserName_thenIndexScanWithoutSort() {
+        assertThat(winningPlanStages(() -> scanRepository.findScansByUserName("lode")))
+                .contains("IXSCAN")
+                .doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void whenFindScansByCarBrand_thenIndexScanWithoutSort() {
+        assertThat(winningPlanStages(() -> scanRepository.findScansByCarBrand("traktor")))
+                .contains("IXSCAN")
+                .doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void whenFindTopScansByCarBrand_thenIndexScanWithoutSort() {
+        assertThat(winningPlanStages(() -> scanRepository.findScansByCarBrandOrderByScoreNumberDescIdAsc("traktor", Limit.of(10))))
+                .contains("IXSCAN")
+                .doesNotContain("COLLSCAN", "SORT");
+    }
+
+    @Test
+    void whenFindScanByUserNameAndCarBrand_thenIndexScan() {
+        assertThat(winningPlanStages(() -> scanRepository.findScanByUserNameAndAndCarBrand("lode", "tesla")))
+                .contains("IXSCAN")
+                .doesNotContain("COLLSCAN");
+    }
+
+    // Runs the repository query, sends the find command it issued through explain and collects every plan stage.
+    private List<String> winningPlanStages(Runnable repositoryQuery) {
+        findCommands.clear();
+        repositoryQuery.run();
+        String collection = mongoTemplate.getCollectionName(Scan.class);
+        BsonDocument find = findCommands.stream()
+                .filter(command -> command.getString("find").getValue().equals(collection))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+
+        BsonDocument explained = new BsonDocument("find", find.get("find"));
+        for (String key : List.of("filter", "sort", "limit")) {
+            if (find.containsKey(key)) {
+                explained.append(key, find.get(key));
+            }
+        }
+        Document explain;
+        try {
+            explain = mongoTemplate.getDb().runCommand(new BsonDocument("explain", explained)
+                    .append("verbosity", new BsonString("queryPlanner")));
+        } catch (MongoCommandException e) {
+            assumeTrue(e.getErrorCode() != COMMAND_NOT_FOUND, "explain is not supported by this MongoDB server: " + e.getMessage());
+            throw e;
+        }
+
+        List<String> stages = new ArrayList<>();
+        collectStages(explain.get("queryPlanner", Document.class).get("winningPlan"), stages);
+        return stages;
+    }
+
+    private void collectStages(Object node, List<String> stages) {
+        if (node instanceof Document document) {
+            if (document.get("stage") instanceof String stage) {
+                stages.add(stage);
+            }
+            document.values().forEach(value -> collectStages(value, stages));
+        } else if (node instanceof List<?> list) {
+            list.forEach(value -> collectStages(value, stages));
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.scanservice;
+
+import com.example.scanservice.config.ScanSeeder;
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanStatsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ScanSeederTests {
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanStatsService scanStatsService;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    // Created by hand rather than through scans.seed.enabled, so no background seeding races with the tests
+    private ScanSeeder scanSeeder;
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanSeeder = beanFactory.createBean(ScanSeeder.class);
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenEmptyCollection_whenSeed_thenInsertDemoScansAndRebuildStats() {
+        scanSeeder.seed();
+
+        assertThat(scanRepository.findScansByUserName("lode")).hasSize(3);
+        assertThat(scanRepository.findScansByUserName("johnny")).hasSize(1);
+        assertThat(scanStatsService.getBrandStats()).hasSize(4);
+        assertThat(scanStatsService.getUserStats("lode").getCount()).isEqualTo(3);
+    }
+
+    @Test
+    void givenExistingScans_whenSeed_thenLeaveCollectionAlone() {
+        scanRepository.save(new Scan("Johnny", "Tesla", 4));
+
+        scanSeeder.seed();
+
+        assertThat(scanRepository.count()).isEqualTo(1);
+    }
+}
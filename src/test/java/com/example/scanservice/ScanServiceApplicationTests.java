@@ -1,10 +1,13 @@
 package com.example.scanservice;
 
 import com.example.scanservice.controller.ScanController;
+import com.example.scanservice.repository.ReactiveScanRepository;
 import com.example.scanservice.repository.ScanRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -17,10 +20,20 @@ class ScanServiceApplicationTests {
     @Autowired
     private ScanRepository scanRepository;
 
+    @Autowired
+    private ApplicationContext context;
+
     @Test
     void contextLoads() throws Exception {
         assertThat(scanController).isNotNull();
         assertThat(scanRepository).isNotNull();
     }
 
+    @Test
+    void givenServletMode_whenLoaded_thenNoReactiveMongoClientOrRepositories() {
+        assertThat(context.getBeanNamesForType(com.mongodb.reactivestreams.client.MongoClient.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(ReactiveMongoTemplate.class)).isEmpty();
+        assertThat(context.getBeanNamesForType(ReactiveScanRepository.class)).isEmpty();
+    }
+
 }
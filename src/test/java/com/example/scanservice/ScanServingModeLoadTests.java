@@ -0,0 +1,190 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.server.WebServer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the servlet and the reactive serving mode with the same closed-loop load at increasing concurrency and logs
+ * p50/p99 latency and the peak number of connections the server held open at once for each step. The connections are
+ * counted by the server: Tomcat's connector count, or a counter on Netty's connection lifecycle.
+ * <p>
+ * Runs with the load tests only: {@code mvn -Ploadtest verify}.
+ */
+@Tag("load")
+class ScanServingModeLoadTests {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanServingModeLoadTests.class);
+
+    private static final int[] CONCURRENCY = {64, 512};
+    private static final int REQUESTS_PER_CLIENT = 5;
+
+    private ConfigurableApplicationContext context;
+
+    @AfterEach
+    public void afterAllTests() {
+        if (context != null) {
+            context.getBean(ScanRepository.class).deleteAll();
+            context.close();
+        }
+    }
+
+    @Test
+    void givenServletMode_whenLoaded_thenServeEveryClientConnectionAtOnce() throws Exception {
+        // Measures what the servlet stack takes, not what admission control lets in
+        for (LoadResult result : load("servlet", "--server.port=0", "--scans.admission.enabled=false")) {
+            assertThat(result.errors).isZero();
+            assertThat(result.peakServerConnections).as("peak server connections of %s", result)
+                    .isGreaterThan(result.concurrency / 2);
+        }
+    }
+
+    @Test
+    void givenReactiveMode_whenLoaded_thenServeEveryClientConnectionAtOnce() throws Exception {
+        for (LoadResult result : load("reactive", "--server.port=0", "--spring.profiles.active=reactive")) {
+            assertThat(result.errors).isZero();
+            assertThat(result.peakServerConnections).as("peak server connections of %s", result)
+                    .isGreaterThan(result.concurrency / 2);
+        }
+    }
+
+    private record LoadResult(int concurrency, int errors, long p50Micros, long p99Micros, int peakServerConnections) {
+    }
+
+    /**
+     * Counts the connections Netty has open; Tomcat keeps that count itself.
+     */
+    @Configuration(proxyBeanMethods = false)
+    static class NettyConnectionCounter {
+
+        final AtomicInteger open = new AtomicInteger();
+
+        @Bean
+        NettyServerCustomizer connectionCounter() {
+            return server -> server.doOnConnection(connection -> {
+                open.incrementAndGet();
+                connection.onDispose(open::decrementAndGet);
+            });
+        }
+    }
+
+    private List<LoadResult> load(String mode, String... args) throws Exception {
+        context = new SpringApplicationBuilder(ScanServiceApplication.class, NettyConnectionCounter.class).run(args);
+        WebServer webServer = ((WebServerApplicationContext) context).getWebServer();
+        IntSupplier serverConnections = webServer instanceof TomcatWebServer tomcat
+                ? () -> (int) ((AbstractProtocol<?>) tomcat.getTomcat().getConnector().getProtocolHandler()).getConnectionCount()
+                : context.getBean(NettyConnectionCounter.class).open::get;
+
+        ScanRepository scanRepository = context.getBean(ScanRepository.class);
+        scanRepository.deleteAll();
+        List<Scan> scans = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            scans.add(new Scan("user" + i, "brand" + (i % 10), i % 10));
+        }
+        scanRepository.saveAll(scans);
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + webServer.getPort() + "/scans?limit=20"))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+
+        List<LoadResult> results = new ArrayList<>();
+        for (int concurrency : CONCURRENCY) {
+            results.add(step(client, request, concurrency, serverConnections));
+        }
+        for (LoadResult result : results) {
+            log.info("{} concurrency={} p50={}us p99={}us peakServerConnections={} errors={}", mode,
+                    result.concurrency, result.p50Micros, result.p99Micros, result.peakServerConnections, result.errors);
+        }
+        return results;
+    }
+
+    private LoadResult step(HttpClient client, HttpRequest request, int concurrency, IntSupplier serverConnections)
+            throws InterruptedException {
+        long[] latencies = new long[concurrency * REQUESTS_PER_CLIENT];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        AtomicBoolean sampling = new AtomicBoolean(true);
+        AtomicInteger peakServerConnections = new AtomicInteger();
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (sampling.get()) {
+                peakServerConnections.accumulateAndGet(serverConnections.getAsInt(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        for (int c = 0; c < concurrency; c++) {
+            clients.execute(() -> {
+                try {
+                    start.await();
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long begin = System.nanoTime();
+                        try {
+                            if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        } finally {
+                            latencies[next.getAndIncrement()] = System.nanoTime() - begin;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        clients.shutdown();
+        assertThat(clients.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        sampling.set(false);
+        sampler.join();
+
+        Arrays.sort(latencies);
+        return new LoadResult(concurrency, errors.get(),
+                latencies[latencies.length / 2] / 1000,
+                latencies[(int) (latencies.length * 0.99)] / 1000,
+                peakServerConnections.get());
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import com.example.scanservice.service.ScanStatsService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ScanStatsIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ScanRepository scanRepository;
+
+    @Autowired
+    private ScanStatsService scanStatsService;
+
+    private ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    public void beforeAllTests() {
+        scanRepository.deleteAll();
+        scanRepository.save(new Scan("Lode", "Traktor", 1));
+        scanRepository.save(new Scan("Lode", "Tesla", 2));
+        scanRepository.save(new Scan("Johnny", "Traktor", 3));
+        scanStatsService.rebuild();
+    }
+
+    @AfterEach
+    public void afterAllTests() {
+        scanRepository.deleteAll();
+    }
+
+    @Test
+    void givenRebuiltStats_whenGetUserStats_thenReturnStatsOfUser() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}/stats", "Lode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName", is("lode")))
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.average", is(1.5)))
+                .andExpect(jsonPath("$.min", is(1)))
+                .andExpect(jsonPath("$.max", is(2)));
+    }
+
+    @Test
+    void givenStatsNotBuilt_whenGetUserStats_thenAggregateOnlyThatUser() throws Exception {
+        scanStatsService.invalidate();
+
+        mockMvc.perform(get("/scans/user/{userName}/stats", "Lode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.userName", is("lode")))
+                .andExpect(jsonPath("$.count", is(2)))
+                .andExpect(jsonPath("$.max", is(2)));
+        mockMvc.perform(get("/scans/user/{userName}/stats", "nobody"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenGetUserStatsOfUnknownUser_thenStatusNotFound() throws Exception {
+        mockMvc.perform(get("/scans/user/{userName}/stats", "nobody"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenPostAndPutScans_thenStatsFollowWithoutRebuild() throws Exception {
+        mockMvc.perform(post("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Johnny", "Tesla", 8)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/scans")
+                        .content(mapper.writeValueAsString(new Scan("Lode", "Traktor", 6)))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].carBrand", is("tesla")))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[0].max", is(8)))
+                .andExpect(jsonPath("$[1].carBrand", is("traktor")))
+                .andExpect(jsonPath("$[1].average", is(4.5)))
+                .andExpect(jsonPath("$[1].min", is(3)))
+                .andExpect(jsonPath("$[1].max", is(6)));
+    }
+
+    @Test
+    void whenPostExtremeAndNegativeScores_thenStatsFollowAndRebuild() throws Exception {
+        for (Scan scan : new Scan[]{new Scan("Anna", "Traktor", Integer.MAX_VALUE),
+                new Scan("Maria", "Traktor", Integer.MIN_VALUE), new Scan("Piet", "Traktor", -5)}) {
+            mockMvc.perform(post("/scans")
+                            .content(mapper.writeValueAsString(scan))
+                            .contentType(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk());
+        }
+
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(jsonPath("$[1].carBrand", is("traktor")))
+                .andExpect(jsonPath("$[1].count", is(5)))
+                .andExpect(jsonPath("$[1].min", is(Integer.MIN_VALUE)))
+                .andExpect(jsonPath("$[1].max", is(Integer.MAX_VALUE)));
+
+        mockMvc.perform(delete("/scans/user/{userName}/car/{carBrand}", "anna", "traktor"))
+                .andExpect(status().isOk());
+        scanStatsService.rebuild();
+
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(jsonPath("$[1].count", is(4)))
+                .andExpect(jsonPath("$[1].min", is(Integer.MIN_VALUE)))
+                .andExpect(jsonPath("$[1].max", is(3)));
+        mockMvc.perform(get("/scans/user/{userName}/stats", "piet"))
+                .andExpect(jsonPath("$.average", is(-5.0)));
+    }
+
+    @Test
+    void whenDeleteScans_thenStatsFollowWithoutRebuild() throws Exception {
+        mockMvc.perform(delete("/scans/user/{userName}/car/{carBrand}", "johnny", "traktor"))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/scans/{carBrand}", "tesla"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].carBrand", is("traktor")))
+                .andExpect(jsonPath("$[0].count", is(1)))
+                .andExpect(jsonPath("$[0].max", is(1)));
+        mockMvc.perform(get("/scans/user/{userName}/stats", "johnny"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void whenDeleteScansByUserName_thenBrandStatsFollowWithoutRebuild() throws Exception {
+        mockMvc.perform(delete("/scans/user/{userName}", "Lode"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.deletedCount", is(2)));
+
+        mockMvc.perform(get("/scans/stats"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].carBrand", is("traktor")))
+                .andExpect(jsonPath("$[0].count", is(1)))
+                .andExpect(jsonPath("$[0].min", is(3)));
+        mockMvc.perform(get("/scans/user/{userName}/stats", "lode"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void givenScanWrittenBehindTheService_whenReconcile_thenStatsRebuilt() throws Exception {
+        scanRepository.save(new Scan("Johnny", "Tesla", 8));
+
+        mockMvc.perform(get("/scans/user/{userName}/stats", "johnny")).andExpect(jsonPath("$.count", is(1)));
+
+        scanStatsService.reconcile();
+
+        mockMvc.perform(get("/scans/user/{userName}/stats", "johnny")).andExpect(jsonPath("$.count", is(2)));
+    }
+}
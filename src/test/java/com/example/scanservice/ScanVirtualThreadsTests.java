@@ -0,0 +1,83 @@
+package com.example.scanservice;
+
+import com.example.scanservice.model.Scan;
+import com.example.scanservice.repository.ScanRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Floods the lookup endpoint while every MongoDB call takes {@value #MONGO_LATENCY_MILLIS}ms. With a platform thread
+ * pool of {@value #TOMCAT_THREADS} threads throughput could not exceed TOMCAT_THREADS / latency requests per second.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.threads.virtual.enabled=true", "server.tomcat.threads.max=" + ScanVirtualThreadsTests.TOMCAT_THREADS,
+                // Measures what the server takes, not what admission control lets in
+                "scans.admission.enabled=false"})
+class ScanVirtualThreadsTests {
+
+    static final int TOMCAT_THREADS = 20;
+    private static final long MONGO_LATENCY_MILLIS = 1000;
+    private static final int REQUESTS = 400;
+
+    @LocalServerPort
+    private int port;
+
+    @MockitoBean
+    private ScanRepository scanRepository;
+
+    // Compares wall-clock throughput, runs with the load tests only
+    @Test
+    @Tag("load")
+    void givenSlowMongo_whenFlooded_thenThroughputScalesPastThreadPoolLimit() throws Exception {
+        given(scanRepository.findScanByUserNameAndAndCarBrand(anyString(), anyString())).willAnswer(invocation -> {
+            Thread.sleep(MONGO_LATENCY_MILLIS);
+            return new Scan(invocation.getArgument(0), invocation.getArgument(1), 1);
+        });
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+
+        // Warm up so the measurement is not dominated by lazy initialisation and JIT compilation.
+        flood(client, "warmup");
+
+        long start = System.nanoTime();
+        flood(client, "user");
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double throughput = REQUESTS / seconds;
+        double threadPoolLimit = TOMCAT_THREADS * 1000.0 / MONGO_LATENCY_MILLIS;
+
+        assertThat(throughput).as("req/s of %d requests in %.2fs, a %d thread pool would cap at %.0f req/s",
+                REQUESTS, seconds, TOMCAT_THREADS, threadPoolLimit).isGreaterThan(2 * threadPoolLimit);
+    }
+
+    private void flood(HttpClient client, String userPrefix) throws Exception {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            // A distinct user per request so the lookup cache cannot absorb the load.
+            URI uri = URI.create("http://localhost:" + port + "/scans/user/" + userPrefix + i + "/car/audi");
+            responses.add(client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding()));
+        }
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            assertThat(response.get().statusCode()).isEqualTo(200);
+        }
+    }
+}